@@ -2,17 +2,29 @@ package com.imagepicker.adapter;
 
 import android.content.Context;
 import android.view.LayoutInflater;
+import android.widget.ImageView;
 
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.imagepicker.features.imageloader.ImageLoader;
+import com.imagepicker.features.imageloader.ImageType;
+import com.imagepicker.features.imageloader.ThumbnailImageLoader;
 
 public abstract class BaseListAdapter<T extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<T> {
 
+    /* Unique across the adapters, they share one view pool */
+    public static final int VIEW_TYPE_IMAGE = 1;
+    public static final int VIEW_TYPE_IMAGE_FLAT = 2;
+    public static final int VIEW_TYPE_FOLDER = 3;
+
     private final Context context;
     private final LayoutInflater inflater;
     private final ImageLoader imageLoader;
 
+    /* Width of a grid cell in pixels, 0 until the grid is laid out */
+    private int thumbnailSize;
+
     public BaseListAdapter(Context context, ImageLoader imageLoader) {
         this.context = context;
         this.inflater = LayoutInflater.from(context);
@@ -23,6 +35,59 @@ public abstract class BaseListAdapter<T extends RecyclerView.ViewHolder> extends
         return imageLoader;
     }
 
+    public void setThumbnailSize(int thumbnailSize) {
+        this.thumbnailSize = thumbnailSize;
+    }
+
+    /**
+     * Whether {@link #loadThumbnail} loads by id, otherwise it needs the path of every row
+     */
+    protected boolean canLoadThumbnails() {
+        return thumbnailSize > 0 && imageLoader instanceof ThumbnailImageLoader;
+    }
+
+    /**
+     * Load a cell sized thumbnail when the image loader supports it, the full image otherwise
+     */
+    protected void loadThumbnail(long id, String path, long dateModified, boolean isVideo,
+                                 ImageView imageView, ImageType imageType) {
+        if (canLoadThumbnails()) {
+            ((ThumbnailImageLoader) imageLoader).loadThumbnail(id, path, dateModified, isVideo,
+                    thumbnailSize, imageView, imageType);
+        } else {
+            imageLoader.loadImage(path, imageView, imageType);
+        }
+    }
+
+    /**
+     * Start decoding the thumbnail {@link #loadThumbnail} will request for the same row
+     *
+     * @return request to pass to {@link #cancelPreload}, null when the image loader can't preload
+     */
+    @Nullable
+    protected Object preloadThumbnail(long id, String path, long dateModified, boolean isVideo) {
+        if (canLoadThumbnails()) {
+            return ((ThumbnailImageLoader) imageLoader).preloadThumbnail(context, id, path, dateModified, isVideo,
+                    thumbnailSize);
+        }
+        return null;
+    }
+
+    public void cancelPreload(Object request) {
+        ((ThumbnailImageLoader) imageLoader).cancelPreload(context, request);
+    }
+
+    public void setRequestsPaused(boolean paused) {
+        if (!(imageLoader instanceof ThumbnailImageLoader)) {
+            return;
+        }
+        if (paused) {
+            ((ThumbnailImageLoader) imageLoader).pauseRequests(context);
+        } else {
+            ((ThumbnailImageLoader) imageLoader).resumeRequests(context);
+        }
+    }
+
     public Context getContext() {
         return context;
     }
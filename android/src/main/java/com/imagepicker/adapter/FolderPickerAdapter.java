@@ -6,66 +6,125 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.christian.christian_picker_image.R;
 import com.imagepicker.features.imageloader.ImageLoader;
 import com.imagepicker.features.imageloader.ImageType;
+import com.imagepicker.helper.ImagePickerUtils;
 import com.imagepicker.listeners.OnFolderClickListener;
 import com.imagepicker.model.Folder;
+import com.imagepicker.model.MediaSnapshot;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class FolderPickerAdapter extends BaseListAdapter<FolderPickerAdapter.FolderViewHolder> {
 
+    private static final DiffUtil.ItemCallback<Folder> DIFF_CALLBACK = new DiffUtil.ItemCallback<Folder>() {
+        @Override
+        public boolean areItemsTheSame(Folder oldItem, Folder newItem) {
+            if (oldItem.getBucketId() != 0 || newItem.getBucketId() != 0) {
+                return oldItem.getBucketId() == newItem.getBucketId();
+            }
+            return equals(oldItem.getFolderName(), newItem.getFolderName());
+        }
+
+        @Override
+        public boolean areContentsTheSame(Folder oldItem, Folder newItem) {
+            return oldItem.getCount() == newItem.getCount()
+                    && oldItem.getCoverId() == newItem.getCoverId()
+                    && oldItem.getCoverDateModified() == newItem.getCoverDateModified()
+                    && equals(oldItem.getCoverPath(), newItem.getCoverPath())
+                    && equals(oldItem.getFolderName(), newItem.getFolderName());
+        }
+
+        private boolean equals(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    };
+
     private final OnFolderClickListener folderClickListener;
 
-    private List<Folder> folders = new ArrayList<>();
+    /* Shared by every row, the row is found from the view holder set as tag */
+    private final View.OnClickListener clickListener = v -> onFolderClick((FolderViewHolder) v.getTag());
+
+    /* Refreshed folder lists are diffed in the background, only the folders that changed are rebound */
+    private final AsyncListDiffer<Folder> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
 
     public FolderPickerAdapter(Context context, ImageLoader imageLoader, OnFolderClickListener folderClickListener) {
         super(context, imageLoader);
         this.folderClickListener = folderClickListener;
+        setHasStableIds(true);
+    }
+
+    /* Folders built from a snapshot have no bucket id, their name identifies them */
+    private static long getStableId(Folder folder) {
+        if (folder.getBucketId() != 0) {
+            return folder.getBucketId();
+        }
+        String name = folder.getFolderName();
+        return name == null ? 0 : ImagePickerUtils.negativeHash(name);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_FOLDER;
     }
 
     @Override
     public FolderViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        return new FolderViewHolder(
+        FolderViewHolder viewHolder = new FolderViewHolder(
                 getInflater().inflate(R.layout.ef_imagepicker_item_folder, parent, false));
+        viewHolder.itemView.setTag(viewHolder);
+        viewHolder.itemView.setOnClickListener(clickListener);
+        return viewHolder;
     }
 
     @Override
-    public void onBindViewHolder(final FolderViewHolder holder, int position) {
-        final Folder folder = folders.get(position);
-
-        getImageLoader().loadImage(
-                folder.getImages().get(0).getPath(),
+    public void onBindViewHolder(FolderViewHolder holder, int position) {
+        Folder folder = differ.getCurrentList().get(position);
+
+        loadThumbnail(
+                folder.getCoverId(),
+                folder.getCoverPath(),
+                folder.getCoverDateModified(),
+                folder.getCoverType() == MediaSnapshot.TYPE_VIDEO,
                 holder.image,
                 ImageType.FOLDER
         );
 
-        holder.name.setText(folders.get(position).getFolderName());
-        holder.number.setText(String.valueOf(folders.get(position).getImages().size()));
-        holder.itemView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(final View v) {
-                if (folderClickListener != null)
-                    folderClickListener.onFolderClick(folder);
-            }
-        });
+        holder.name.setText(folder.getFolderName());
+        holder.number.setText(String.valueOf(folder.getCount()));
     }
 
+    private void onFolderClick(FolderViewHolder holder) {
+        int position = holder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION || folderClickListener == null) {
+            return;
+        }
+        folderClickListener.onFolderClick(differ.getCurrentList().get(position));
+    }
+
+    /**
+     * Replace the folders, keeping the current ones when null
+     */
     public void setData(List<Folder> folders) {
         if (folders != null) {
-            this.folders.clear();
-            this.folders.addAll(folders);
+            differ.submitList(new ArrayList<>(folders));
         }
-        notifyDataSetChanged();
     }
 
     @Override
     public int getItemCount() {
-        return folders.size();
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getStableId(differ.getCurrentList().get(position));
     }
 
     static class FolderViewHolder extends RecyclerView.ViewHolder {
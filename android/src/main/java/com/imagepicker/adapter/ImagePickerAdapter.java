@@ -1,7 +1,13 @@
 package com.imagepicker.adapter;
 
 import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.ListUpdateCallback;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.view.View;
@@ -13,63 +19,140 @@ import android.widget.TextView;
 import com.christian.christian_picker_image.R;
 import com.imagepicker.features.imageloader.ImageLoader;
 import com.imagepicker.features.imageloader.ImageType;
-import com.imagepicker.helper.ImagePickerUtils;
 import com.imagepicker.listeners.OnImageClickListener;
+import com.imagepicker.listeners.OnImageLongClickListener;
 import com.imagepicker.listeners.OnImageSelectedListener;
 import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaDelta;
+import com.imagepicker.model.MediaSnapshot;
+import com.imagepicker.model.SelectionIndex;
+import com.imagepicker.view.MediaCellView;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 public class ImagePickerAdapter extends BaseListAdapter<ImagePickerAdapter.ImageViewHolder> {
 
-    private List<Image> images = new ArrayList<>();
-    private List<Image> selectedImages = new ArrayList<>();
+    /* Diffs of whole reloads are computed off the main thread, like AsyncListDiffer */
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+
+    private MediaSnapshot images = MediaSnapshot.EMPTY;
+
+    /* Bumped by every data change, a diff computed against older data is dropped */
+    private int dataVersion;
+    private final SelectionIndex selectedImages = new SelectionIndex();
+
+    /* Positions of the selected rows in the current snapshot, kept in sync with selectedImages */
+    private final BitSet selectedPositions = new BitSet();
+
+    /* Drag selection in progress, see beginRangeSelection */
+    private BitSet rangeBase;
+    private int rangeAnchor = RecyclerView.NO_POSITION;
+    private int rangeFrom;
+    private int rangeTo;
+    private int rangeMin;
+    private int rangeMax;
+    private int rangeBudget;
+    private boolean rangeSelects;
 
     private OnImageClickListener itemClickListener;
     private OnImageSelectedListener imageSelectedListener;
+    private OnImageLongClickListener imageLongClickListener;
+
+    private final String gifLabel;
+    private final String videoLabel;
+    private boolean flatCells;
+    private final View.OnClickListener clickListener = v -> onItemClick((ImageViewHolder) v.getTag());
+    private final View.OnLongClickListener longClickListener = v -> onItemLongClick((ImageViewHolder) v.getTag());
 
     public ImagePickerAdapter(Context context, ImageLoader imageLoader,
                               List<Image> selectedImages, OnImageClickListener itemClickListener) {
         super(context, imageLoader);
         this.itemClickListener = itemClickListener;
+        setHasStableIds(true);
+
+        this.gifLabel = context.getString(R.string.ef_gif);
+        this.videoLabel = context.getString(R.string.ef_video);
 
         if (selectedImages != null && !selectedImages.isEmpty()) {
             this.selectedImages.addAll(selectedImages);
         }
+        syncSelectedPositions();
+    }
+
+    /**
+     * Draw each cell as a single {@link MediaCellView} instead of inflating ef_imagepicker_item_image
+     */
+    public void setFlatCells(boolean flatCells) {
+        this.flatCells = flatCells;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return flatCells ? VIEW_TYPE_IMAGE_FLAT : VIEW_TYPE_IMAGE;
     }
 
     @Override
     public ImageViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
-        return new ImageViewHolder(
-                getInflater().inflate(R.layout.ef_imagepicker_item_image, parent, false)
-        );
+        ImageViewHolder viewHolder;
+        if (viewType == VIEW_TYPE_IMAGE_FLAT) {
+            MediaCellView cell = new MediaCellView(getContext());
+            cell.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            viewHolder = new ImageViewHolder(cell);
+        } else {
+            viewHolder = new ImageViewHolder(
+                    getInflater().inflate(R.layout.ef_imagepicker_item_image, parent, false)
+            );
+        }
+        viewHolder.itemView.setTag(viewHolder);
+        viewHolder.itemView.setOnClickListener(clickListener);
+        viewHolder.itemView.setOnLongClickListener(longClickListener);
+        return viewHolder;
     }
 
+    /**
+     * Binding doesn't allocate besides the image request, resources are resolved per cell, the click listener is shared
+     * and the path is only read for rows that need it
+     */
     @Override
     public void onBindViewHolder(ImageViewHolder viewHolder, int position) {
-
-        final Image image = images.get(position);
-        final boolean isSelected = isSelected(image);
-
-        getImageLoader().loadImage(
-                image.getPath(),
+        final long id = images.getId(position);
+        final byte type = images.getType(position);
+        final boolean isSelected = selectedPositions.get(position);
+
+        loadThumbnail(
+                id,
+                id == 0 || !canLoadThumbnails() ? images.getPath(position) : null,
+                images.getDateModified(position),
+                type == MediaSnapshot.TYPE_VIDEO,
                 viewHolder.imageView,
                 ImageType.GALLERY
         );
 
-        boolean showFileTypeIndicator = false;
-        String fileTypeLabel = "";
-        if(ImagePickerUtils.isGifFormat(image)) {
-            fileTypeLabel = getContext().getResources().getString(R.string.ef_gif);
-            showFileTypeIndicator = true;
+        String fileTypeLabel = null;
+        if (type == MediaSnapshot.TYPE_GIF) {
+            fileTypeLabel = gifLabel;
+        } else if (type == MediaSnapshot.TYPE_VIDEO) {
+            fileTypeLabel = videoLabel;
         }
-        if(ImagePickerUtils.isVideoFormat(image)) {
-            fileTypeLabel = getContext().getResources().getString(R.string.ef_video);
-            showFileTypeIndicator = true;
+
+        if (viewHolder.cell != null) {
+            viewHolder.cell.setBadge(fileTypeLabel);
+            viewHolder.cell.setChecked(isSelected);
+            return;
         }
-        viewHolder.fileTypeIndicator.setText(fileTypeLabel);
-        viewHolder.fileTypeIndicator.setVisibility(showFileTypeIndicator
+
+        if (fileTypeLabel != null && fileTypeLabel != viewHolder.fileTypeLabel) {
+            viewHolder.fileTypeIndicator.setText(fileTypeLabel);
+            viewHolder.fileTypeLabel = fileTypeLabel;
+        }
+        viewHolder.fileTypeIndicator.setVisibility(fileTypeLabel != null
                 ? View.VISIBLE
                 : View.GONE);
 
@@ -77,30 +160,63 @@ public class ImagePickerAdapter extends BaseListAdapter<ImagePickerAdapter.Image
                 ? 0.5f
                 : 0f);
 
-        viewHolder.itemView.setOnClickListener(v -> {
-            boolean shouldSelect = itemClickListener.onImageClick(
-                    isSelected
-            );
-
-            if (isSelected) {
-                removeSelectedImage(image, position);
-            } else if (shouldSelect) {
-                addSelected(image, position);
-            }
-        });
-
         viewHolder.container.setForeground(isSelected
-                ? ContextCompat.getDrawable(getContext(), R.drawable.ic_done_teal)
+                ? viewHolder.selectedForeground
                 : null);
     }
 
-    private boolean isSelected(Image image) {
-        for (Image selectedImage : selectedImages) {
-            if (selectedImage.getPath().equals(image.getPath())) {
-                return true;
+    private void onItemClick(ImageViewHolder viewHolder) {
+        int position = viewHolder.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        boolean isSelected = selectedPositions.get(position);
+        boolean shouldSelect = itemClickListener.onImageClick(
+                isSelected
+        );
+
+        if (isSelected) {
+            removeSelectedImage(images.getId(position), images.getPath(position), position);
+        } else if (shouldSelect) {
+            addSelected(images.toImage(position), position);
+        }
+    }
+
+    private boolean onItemLongClick(ImageViewHolder viewHolder) {
+        int position = viewHolder.getAdapterPosition();
+        return position != RecyclerView.NO_POSITION
+                && imageLongClickListener != null
+                && imageLongClickListener.onImageLongClick(position);
+    }
+
+    /**
+     * Set the bits of the selected rows from scratch, after the snapshot changed
+     */
+    private void syncSelectedPositions() {
+        selectedPositions.clear();
+        syncSelectedPositions(0);
+    }
+
+    /**
+     * Set the bits of the selected rows at or after {@code from}, the bits before it are kept
+     * Rows are found through the id index, selections without an id are matched against the paths in place.
+     * Those are matched against every row, the same file has an id once MediaStore has indexed it.
+     */
+    private void syncSelectedPositions(int from) {
+        for (Image image : selectedImages) {
+            if (image.getId() != 0) {
+                int position = images.indexOfId(image.getId());
+                if (position >= from) {
+                    selectedPositions.set(position);
+                }
+            } else {
+                for (int position = images.indexOfPath(image.getPath(), from);
+                     position >= 0;
+                     position = images.indexOfPath(image.getPath(), position + 1)) {
+                    selectedPositions.set(position);
+                }
             }
         }
-        return false;
     }
 
     @Override
@@ -108,37 +224,139 @@ public class ImagePickerAdapter extends BaseListAdapter<ImagePickerAdapter.Image
         return images.size();
     }
 
+    @Override
+    public long getItemId(int position) {
+        return images.getStableId(position);
+    }
 
-    public void setData(List<Image> images) {
-        this.images.clear();
-        this.images.addAll(images);
+    /**
+     * Start decoding the thumbnail of a row that is about to be shown
+     *
+     * @return request to pass to {@link #cancelPreload}, null when nothing was started
+     */
+    @Nullable
+    public Object preload(int position) {
+        return preloadThumbnail(
+                images.getId(position),
+                images.getId(position) == 0 ? images.getPath(position) : null,
+                images.getDateModified(position),
+                images.getType(position) == MediaSnapshot.TYPE_VIDEO
+        );
+    }
+
+    /**
+     * Replace the data without diffing, used when switching to another list such as another folder
+     */
+    public void setData(MediaSnapshot images) {
+        endRangeSelection();
+        dataVersion++;
+        this.images = images;
+        syncSelectedPositions();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Move to a reload of the same list, only the rows that changed are notified
+     * The diff is computed in the background and dropped if the data changes again meanwhile
+     */
+    public void submitData(final MediaSnapshot images) {
+        final MediaSnapshot previous = this.images;
+        final int version = ++dataVersion;
+        if (previous == images) {
+            return;
+        }
+        if (previous.isEmpty() || images.isEmpty()) {
+            endRangeSelection();
+            this.images = images;
+            syncSelectedPositions();
+            notifyDataSetChanged();
+            return;
+        }
+
+        DIFF_EXECUTOR.execute(() -> {
+            final RecordedUpdates updates = new RecordedUpdates();
+            final boolean isDiffed = MediaDelta.between(previous, images).dispatchUpdatesTo(updates);
+            main.post(() -> {
+                if (version != dataVersion) {
+                    return;
+                }
+                endRangeSelection();
+                this.images = images;
+                syncSelectedPositions();
+                if (isDiffed) {
+                    updates.dispatchTo(new AdapterListUpdateCallback(this));
+                } else {
+                    notifyDataSetChanged();
+                }
+            });
+        });
+    }
+
+    /**
+     * Swap in a snapshot that extends the current one, only the new tail is inserted
+     */
+    public void appendData(MediaSnapshot images) {
+        endRangeSelection();
+        dataVersion++;
+        int start = this.images.size();
+        this.images = images;
+        /* The rows before the tail didn't move, only the new ones need matching */
+        syncSelectedPositions(start);
+        notifyItemRangeInserted(start, images.size() - start);
+    }
+
+    /**
+     * Move to the synced snapshot, notifying only the rows that were inserted, removed or modified
+     */
+    public void applyDelta(MediaDelta delta) {
+        endRangeSelection();
+        dataVersion++;
+        this.images = delta.getCurrent();
+        syncSelectedPositions();
+        if (!delta.dispatchUpdatesTo(new AdapterListUpdateCallback(this))) {
+            notifyDataSetChanged();
+        }
+    }
+
+    public MediaSnapshot getData() {
+        return images;
     }
 
     private void addSelected(final Image image, final int position) {
         mutateSelection(() -> {
             selectedImages.add(image);
+            selectedPositions.set(position);
             notifyItemChanged(position);
         });
     }
 
-    private void removeSelectedImage(final Image image, final int position) {
+    private void removeSelectedImage(final long id, final String path, final int position) {
         mutateSelection(() -> {
-            selectedImages.remove(image);
+            selectedImages.remove(id, path);
+            selectedPositions.clear(position);
             notifyItemChanged(position);
         });
     }
 
     public void removeAllSelectedSingleClick() {
         mutateSelection(() -> {
+            /* Only rebind the rows that were selected */
+            for (int i = selectedPositions.nextSetBit(0); i >= 0; i = selectedPositions.nextSetBit(i + 1)) {
+                notifyItemChanged(i);
+            }
             selectedImages.clear();
-            notifyDataSetChanged();
+            selectedPositions.clear();
         });
     }
 
     private void mutateSelection(Runnable runnable) {
         runnable.run();
+        notifySelectionUpdate();
+    }
+
+    private void notifySelectionUpdate() {
         if (imageSelectedListener != null) {
-            imageSelectedListener.onSelectionUpdate(selectedImages);
+            imageSelectedListener.onSelectionUpdate(selectedImages.toList());
         }
     }
 
@@ -146,12 +364,210 @@ public class ImagePickerAdapter extends BaseListAdapter<ImagePickerAdapter.Image
         this.imageSelectedListener = imageSelectedListener;
     }
 
+    public void setImageLongClickListener(OnImageLongClickListener imageLongClickListener) {
+        this.imageLongClickListener = imageLongClickListener;
+    }
+
+    /* --------------------------------------------------- */
+    /* > Range selection */
+    /* --------------------------------------------------- */
+
+    /**
+     * Start a drag selection at the pressed row
+     * The range selects rows when the anchor wasn't selected and deselects them otherwise.
+     * Only the bits change while dragging, the selection is updated and reported once in {@link #endRangeSelection()}.
+     *
+     * @param limit maximum number of selected images, checked once here for the whole gesture
+     * @return false when the anchor can't be selected because the limit is reached
+     */
+    public boolean beginRangeSelection(int anchor, int limit) {
+        endRangeSelection();
+        rangeSelects = !selectedPositions.get(anchor);
+        rangeBudget = rangeSelects ? limit - selectedImages.size() : Integer.MAX_VALUE;
+        rangeBase = (BitSet) selectedPositions.clone();
+        rangeAnchor = anchor;
+        rangeFrom = anchor;
+        rangeTo = anchor - 1;
+        rangeMin = anchor;
+        rangeMax = anchor;
+        return updateRangeSelection(anchor);
+    }
+
+    public boolean isRangeSelecting() {
+        return rangeAnchor != RecyclerView.NO_POSITION;
+    }
+
+    /**
+     * Extend the range from the anchor to the given row, rows left out of it go back to their state before the gesture
+     *
+     * @return false when the range was cut short by the limit
+     */
+    public boolean updateRangeSelection(int position) {
+        if (!isRangeSelecting() || position < 0 || position >= images.size()) {
+            return true;
+        }
+
+        /* Cut short by the limit the range can end up empty, from past to */
+        int end = rangeSelects ? clampToBudget(position) : position;
+        int from = position >= rangeAnchor ? rangeAnchor : end;
+        int to = position >= rangeAnchor ? end : rangeAnchor;
+        if (from == rangeFrom && to == rangeTo) {
+            return end == position;
+        }
+
+        /* Rows entering or leaving the range, notified as contiguous runs */
+        int start = Math.min(from, rangeFrom);
+        int stop = Math.max(to, rangeTo);
+        int runStart = -1;
+        for (int i = start; i <= stop + 1; i++) {
+            boolean changed = false;
+            if (i <= stop) {
+                boolean selected = i >= from && i <= to ? rangeSelects : rangeBase.get(i);
+                if (selectedPositions.get(i) != selected) {
+                    selectedPositions.set(i, selected);
+                    changed = true;
+                }
+            }
+            if (changed && runStart < 0) {
+                runStart = i;
+            } else if (!changed && runStart >= 0) {
+                notifyItemRangeChanged(runStart, i - runStart);
+                runStart = -1;
+            }
+        }
+
+        rangeFrom = from;
+        rangeTo = to;
+        rangeMin = Math.min(rangeMin, from);
+        rangeMax = Math.max(rangeMax, to);
+        return end == position;
+    }
+
+    /* Furthest row towards the position whose range selects no more rows than the budget allows */
+    private int clampToBudget(int position) {
+        int remaining = rangeBudget;
+        if (position >= rangeAnchor) {
+            int clear = rangeBase.nextClearBit(rangeAnchor);
+            while (clear <= position) {
+                if (remaining-- == 0) {
+                    return clear - 1;
+                }
+                clear = rangeBase.nextClearBit(clear + 1);
+            }
+        } else {
+            int clear = rangeBase.previousClearBit(rangeAnchor);
+            while (clear >= position) {
+                if (remaining-- == 0) {
+                    return clear + 1;
+                }
+                clear = rangeBase.previousClearBit(clear - 1);
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Apply the rows changed by the gesture to the selection and report it once
+     */
+    public void endRangeSelection() {
+        if (!isRangeSelecting()) {
+            return;
+        }
+        rangeAnchor = RecyclerView.NO_POSITION;
+
+        boolean isChanged = false;
+        for (int i = rangeMin; i <= rangeMax; i++) {
+            boolean selected = selectedPositions.get(i);
+            if (selected == rangeBase.get(i)) {
+                continue;
+            }
+            if (selected) {
+                selectedImages.add(images.toImage(i));
+            } else {
+                selectedImages.remove(images.getId(i), images.getPath(i));
+            }
+            isChanged = true;
+        }
+        rangeBase = null;
+
+        if (isChanged) {
+            notifySelectionUpdate();
+        }
+    }
+
     public Image getItem(int position) {
-        return images.get(position);
+        return images.toImage(position);
     }
 
+    /**
+     * Copy of the selection in selection order
+     */
     public List<Image> getSelectedImages() {
-        return selectedImages;
+        return selectedImages.toList();
+    }
+
+    public int getSelectedCount() {
+        return selectedImages.size();
+    }
+
+    /**
+     * Updates recorded on the diff thread and replayed on the main thread
+     */
+    private static class RecordedUpdates implements ListUpdateCallback {
+
+        private static final int INSERTED = 0;
+        private static final int REMOVED = 1;
+        private static final int CHANGED = 2;
+
+        private int[] ops = new int[24];
+        private int size;
+
+        @Override
+        public void onInserted(int position, int count) {
+            record(INSERTED, position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            record(REMOVED, position, count);
+        }
+
+        /* MediaDelta never reports moves, one is replayed as a remove and an insert rather than failing */
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            record(REMOVED, fromPosition, 1);
+            record(INSERTED, toPosition, 1);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            record(CHANGED, position, count);
+        }
+
+        private void record(int op, int position, int count) {
+            if (size + 3 > ops.length) {
+                ops = Arrays.copyOf(ops, ops.length * 2);
+            }
+            ops[size++] = op;
+            ops[size++] = position;
+            ops[size++] = count;
+        }
+
+        void dispatchTo(ListUpdateCallback callback) {
+            for (int i = 0; i < size; i += 3) {
+                switch (ops[i]) {
+                    case INSERTED:
+                        callback.onInserted(ops[i + 1], ops[i + 2]);
+                        break;
+                    case REMOVED:
+                        callback.onRemoved(ops[i + 1], ops[i + 2]);
+                        break;
+                    default:
+                        callback.onChanged(ops[i + 1], ops[i + 2], null);
+                        break;
+                }
+            }
+        }
     }
 
     static class ImageViewHolder extends RecyclerView.ViewHolder {
@@ -161,6 +577,22 @@ public class ImagePickerAdapter extends BaseListAdapter<ImagePickerAdapter.Image
         private TextView fileTypeIndicator;
         private FrameLayout container;
 
+        /* Set instead of the views above for flat cells */
+        private MediaCellView cell;
+
+        /* Label last set on the indicator, so rebinding the same type doesn't reset the text */
+        private String fileTypeLabel;
+
+        /* One per cell, a drawable keeps the bounds and callback of the view it's attached to */
+        private Drawable selectedForeground;
+
+        ImageViewHolder(MediaCellView cell) {
+            super(cell);
+
+            this.cell = cell;
+            imageView = cell;
+        }
+
         ImageViewHolder(View itemView) {
             super(itemView);
 
@@ -168,6 +600,7 @@ public class ImagePickerAdapter extends BaseListAdapter<ImagePickerAdapter.Image
             imageView = itemView.findViewById(R.id.image_view);
             alphaView = itemView.findViewById(R.id.view_alpha);
             fileTypeIndicator = itemView.findViewById(R.id.ef_item_file_type_indicator);
+            selectedForeground = ContextCompat.getDrawable(itemView.getContext(), R.drawable.ic_done_teal);
         }
     }
 
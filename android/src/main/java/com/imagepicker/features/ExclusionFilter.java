@@ -0,0 +1,213 @@
+package com.imagepicker.features;
+
+import android.provider.MediaStore;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Media excluded with {@link ImagePicker#exclude}, {@link ImagePicker#excludeFiles}, {@link ImagePicker#excludeIds}
+ * and {@link ImagePicker#excludeFolders}, checked in constant time per row
+ * <p>
+ * Ids are pushed into the query selection while the list is short enough, longer lists are checked in an open
+ * addressing set. Paths are hashed, folders are matched once per directory and the verdict is cached.
+ */
+public class ExclusionFilter {
+
+    public static final ExclusionFilter NONE = new ExclusionFilter(new long[0], new HashSet<>(), new HashSet<>());
+
+    /* Ids are inlined as literals, keep the statement well below the SQLite length limit */
+    private static final int MAX_SQL_IDS = 1000;
+
+    private final long[] ids;
+    private final Set<String> paths;
+    private final Set<String> folders;
+
+    private final String selection;
+    private final IdSet idSet;
+
+    /* Verdict of every directory seen so far, rows of the same directory share one lookup */
+    private final ConcurrentHashMap<String, Boolean> directories = new ConcurrentHashMap<>();
+
+    private ExclusionFilter(long[] ids, Set<String> paths, Set<String> folders) {
+        this.ids = ids;
+        this.paths = paths;
+        this.folders = folders;
+
+        if (ids.length == 0) {
+            selection = null;
+            idSet = null;
+        } else if (ids.length <= MAX_SQL_IDS) {
+            selection = createSelection(ids);
+            idSet = null;
+        } else {
+            selection = null;
+            idSet = new IdSet(ids);
+        }
+    }
+
+    public static ExclusionFilter create(@Nullable long[] ids, @Nullable Collection<File> files,
+                                         @Nullable Collection<String> folders) {
+        boolean hasIds = ids != null && ids.length > 0;
+        boolean hasFiles = files != null && !files.isEmpty();
+        boolean hasFolders = folders != null && !folders.isEmpty();
+        if (!hasIds && !hasFiles && !hasFolders) {
+            return NONE;
+        }
+
+        long[] sortedIds = hasIds ? ids.clone() : new long[0];
+        Arrays.sort(sortedIds);
+
+        Set<String> paths = new HashSet<>();
+        if (hasFiles) {
+            for (File file : files) {
+                if (file != null) {
+                    paths.add(file.getPath());
+                }
+            }
+        }
+
+        Set<String> folderPaths = new HashSet<>();
+        if (hasFolders) {
+            for (String folder : folders) {
+                if (folder != null && !folder.isEmpty()) {
+                    folderPaths.add(new File(folder).getPath());
+                }
+            }
+        }
+
+        return new ExclusionFilter(sortedIds, paths, folderPaths);
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0 && paths.isEmpty() && folders.isEmpty();
+    }
+
+    /**
+     * Clause excluding the ids in the query, null when there is none or the list is too long for it
+     */
+    @Nullable
+    public String getSelection() {
+        return selection;
+    }
+
+    /**
+     * Whether some rows can only be excluded after reading them, i.e. the query alone doesn't apply the filter
+     */
+    public boolean hasRowFilter() {
+        return idSet != null || !paths.isEmpty() || !folders.isEmpty();
+    }
+
+    /**
+     * Whether the id alone excludes the row, ids already excluded by {@link #getSelection()} are not checked again
+     */
+    public boolean isExcludedId(long id) {
+        return idSet != null && idSet.contains(id);
+    }
+
+    public boolean isExcluded(long id, String path) {
+        if (isExcludedId(id)) {
+            return true;
+        }
+        if (paths.contains(path)) {
+            return true;
+        }
+        return !folders.isEmpty() && isExcludedDirectory(path);
+    }
+
+    private boolean isExcludedDirectory(String path) {
+        int end = path.lastIndexOf(File.separatorChar);
+        if (end <= 0) {
+            return false;
+        }
+        String directory = path.substring(0, end);
+        Boolean excluded = directories.get(directory);
+        if (excluded == null) {
+            excluded = isInFolders(directory);
+            directories.put(directory, excluded);
+        }
+        return excluded;
+    }
+
+    /* Walk up the parents, one hash lookup each */
+    private boolean isInFolders(String directory) {
+        String current = directory;
+        while (current != null) {
+            if (folders.contains(current)) {
+                return true;
+            }
+            int end = current.lastIndexOf(File.separatorChar);
+            current = end <= 0 ? null : current.substring(0, end);
+        }
+        return false;
+    }
+
+    /**
+     * Identify the filter for the media index cache, a cached snapshot is only reused with the same exclusions
+     */
+    public long getKey() {
+        long key = Arrays.hashCode(ids);
+        key = key * 31 + paths.hashCode();
+        key = key * 31 + folders.hashCode();
+        return key;
+    }
+
+    private static String createSelection(long[] ids) {
+        StringBuilder selection = new StringBuilder(ids.length * 8)
+                .append(MediaStore.Images.Media._ID).append(" NOT IN (");
+        for (int i = 0; i < ids.length; i++) {
+            if (i > 0) {
+                selection.append(',');
+            }
+            selection.append(ids[i]);
+        }
+        return selection.append(')').toString();
+    }
+
+    /**
+     * Open addressing set of MediaStore ids
+     */
+    private static class IdSet {
+
+        private final long[] keys;
+        private final boolean[] used;
+        private final int mask;
+
+        IdSet(long[] ids) {
+            int capacity = Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) << 1;
+            keys = new long[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+            for (long id : ids) {
+                int slot = slot(id);
+                while (used[slot] && keys[slot] != id) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = id;
+                used[slot] = true;
+            }
+        }
+
+        boolean contains(long id) {
+            int slot = slot(id);
+            while (used[slot]) {
+                if (keys[slot] == id) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        private int slot(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
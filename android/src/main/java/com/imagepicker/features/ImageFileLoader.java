@@ -1,50 +1,344 @@
 package com.imagepicker.features;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.provider.MediaStore;
 
 import androidx.annotation.Nullable;
 
+import com.imagepicker.features.common.FolderLoaderListener;
 import com.imagepicker.features.common.ImageLoaderListener;
+import com.imagepicker.features.common.ImageSyncListener;
+import com.imagepicker.features.common.MediaWindowListener;
 import com.imagepicker.model.Folder;
-import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaDelta;
+import com.imagepicker.model.MediaSnapshot;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ImageFileLoader {
 
+    /* MediaStore.MediaColumns.GENERATION_MODIFIED, added in Android 11 */
+    private static final String COLUMN_GENERATION_MODIFIED = "generation_modified";
+    private static final int API_GENERATION = 30;
+
+    /* MediaStore honors QUERY_ARG_LIMIT and QUERY_ARG_OFFSET from Android 11, and rejects LIMIT in the sort order */
+    private static final int API_QUERY_ARGS = 30;
+
+    /* Newest first, the id breaks ties so the pair is a unique key for paging */
+    private static final String SORT_ORDER = MediaStore.Images.Media.DATE_ADDED + " DESC, "
+            + MediaStore.Images.Media._ID + " DESC";
+
+    /* Android 10 rejects selections that inject a GROUP BY clause */
+    private static final int API_NO_GROUP_BY = 29;
+
+    /* Stay well below the SQLite bound parameter limit */
+    private static final int MAX_SELECTION_ARGS = 500;
+
     private Context context;
     private ExecutorService executorService;
+    private MediaIndexCache indexCache;
+
+    /* Bumped by every request, a task that is no longer the latest of its kind is cancelled */
+    private final AtomicInteger imagesVersion = new AtomicInteger();
+    private final AtomicInteger foldersVersion = new AtomicInteger();
+
+    /* Submitted tasks that haven't finished yet, guarded by itself */
+    private final List<LoadTask> activeTasks = new ArrayList<>();
 
     public ImageFileLoader(Context context) {
         this.context = context;
     }
 
-    private final String[] projection = new String[]{
-            MediaStore.Images.Media._ID,
-            MediaStore.Images.Media.DISPLAY_NAME,
-            MediaStore.Images.Media.DATA,
-            MediaStore.Images.Media.BUCKET_DISPLAY_NAME
-    };
+    private final String[] projection = createProjection();
+
+    private static String[] createProjection() {
+        List<String> columns = new ArrayList<>(Arrays.asList(
+                MediaStore.Images.Media._ID,
+                MediaStore.Images.Media.DATA,
+                MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+                MediaStore.Images.Media.DATE_ADDED,
+                MediaStore.Images.Media.DATE_MODIFIED,
+                MediaStore.Images.Media.DATE_TAKEN,
+                MediaStore.Images.Media.MIME_TYPE
+        ));
+        if (isGenerationSupported()) {
+            columns.add(COLUMN_GENERATION_MODIFIED);
+        }
+        return columns.toArray(new String[0]);
+    }
+
+    private static boolean isGenerationSupported() {
+        return Build.VERSION.SDK_INT >= API_GENERATION;
+    }
+
+    public void loadDeviceImages(final boolean isFolderMode, final boolean includeVideo, final ExclusionFilter exclusions, final ImageLoaderListener listener) {
+        loadDeviceImages(isFolderMode, includeVideo, exclusions, 0, 0, listener);
+    }
+
+    /**
+     * Load device images and deliver them in pages while the rest is still being read
+     * Every page is queried with a LIMIT after the sort key of the previous one, so a CursorWindow only ever holds one
+     * page and the provider seeks to the page instead of sorting and skipping every row before it
+     * The first page holds the newest {@code firstPageSize} images, every later page grows it by {@code pageSize}
+     * Paging is skipped in folder mode because the folder list needs every image anyway
+     */
+    public void loadDeviceImages(final boolean isFolderMode, final boolean includeVideo, final ExclusionFilter exclusions,
+                                 final int firstPageSize, final int pageSize, final ImageLoaderListener listener) {
+        submit(imagesVersion, new ImageLoadRunnable(isFolderMode, includeVideo, exclusions, null,
+                firstPageSize, pageSize, listener));
+    }
+
+    /**
+     * Load the images of a single folder, used once the folder is opened in folder mode
+     */
+    public void loadFolderImages(final long bucketId, final boolean includeVideo, final ExclusionFilter exclusions,
+                                 final ImageLoaderListener listener) {
+        submit(imagesVersion, new ImageLoadRunnable(false, includeVideo, exclusions, bucketId,
+                0, 0, listener));
+    }
+
+    /**
+     * Load the {@code limit} rows starting at row {@code offset}, newest first, without keeping anything in memory
+     * Windows don't supersede each other, so a caller paging through the library can have several in flight.
+     * Excluded rows still count as rows, the listener gets the offset to continue from.
+     *
+     * @param bucketId the folder to read, or null for every image
+     */
+    public void loadWindow(final int offset, final int limit, final boolean includeVideo,
+                           final ExclusionFilter exclusions, @Nullable final Long bucketId,
+                           final MediaWindowListener listener) {
+        submit(new AtomicInteger(), new WindowLoadRunnable(offset, limit, includeVideo, exclusions, bucketId, listener));
+    }
+
+    /**
+     * Load one entry per folder with its image count and newest image, without reading every image
+     */
+    public void loadFolders(final boolean includeVideo, final ExclusionFilter exclusions,
+                            final FolderLoaderListener listener) {
+        submit(foldersVersion, new FolderLoadRunnable(includeVideo, exclusions, listener));
+    }
 
-    public void loadDeviceImages(final boolean isFolderMode, final boolean includeVideo, final ArrayList<File> excludedImages, final ImageLoaderListener listener) {
-        getExecutorService().execute(new ImageLoadRunnable(isFolderMode, includeVideo, excludedImages, listener));
+    /**
+     * Bring {@code previous} up to date with MediaStore without reading every row again
+     * Only rows added or modified after the snapshot's {@link MediaSnapshot.SyncPoint} are fully read,
+     * deletions are found with an id-only scan
+     *
+     * @param bucketId the folder {@code previous} was loaded for, or null for every image
+     */
+    public void syncDeviceImages(final MediaSnapshot previous, final boolean includeVideo,
+                                 final ExclusionFilter exclusions, @Nullable final Long bucketId,
+                                 final ImageSyncListener listener) {
+        submit(imagesVersion, new ImageSyncRunnable(previous, includeVideo, exclusions, bucketId, listener));
     }
 
+    /**
+     * Persist every complete load or sync result, so it can be shown by {@link #loadCachedImages} next time
+     */
+    public void setIndexCacheEnabled(boolean enabled) {
+        if (!enabled) {
+            indexCache = null;
+        } else if (indexCache == null) {
+            indexCache = new MediaIndexCache(context);
+        }
+    }
+
+    /**
+     * Deliver the snapshot persisted by a previous load, or fail when there is none for these options
+     * The result can be stale, it should be followed by {@link #syncDeviceImages}
+     */
+    public void loadCachedImages(final boolean includeVideo, final ExclusionFilter exclusions,
+                                 final ImageLoaderListener listener) {
+        final MediaIndexCache cache = indexCache;
+        submit(imagesVersion, new LoadTask() {
+            @Override
+            void load() {
+                MediaSnapshot snapshot = cache == null
+                        ? null
+                        : cache.read(MediaIndexCache.createKey(includeVideo, exclusions));
+                if (!isActive()) {
+                    return;
+                }
+                if (snapshot == null) {
+                    listener.onFailed(new NullPointerException());
+                    return;
+                }
+                listener.onImageLoaded(snapshot, null);
+            }
+        });
+    }
+
+    /**
+     * Cancel every queued and running load, no listener is called once this returns
+     */
     public void abortLoadImages() {
+        imagesVersion.incrementAndGet();
+        foldersVersion.incrementAndGet();
+        synchronized (activeTasks) {
+            for (LoadTask task : activeTasks) {
+                task.cancel();
+            }
+            activeTasks.clear();
+        }
         if (executorService != null) {
             executorService.shutdown();
             executorService = null;
         }
     }
 
+    private void persist(MediaSnapshot snapshot, boolean includeVideo, ExclusionFilter exclusions) {
+        MediaIndexCache cache = indexCache;
+        if (cache != null) {
+            cache.write(snapshot, MediaIndexCache.createKey(includeVideo, exclusions));
+        }
+    }
+
+    /**
+     * Run the task unless another request is made before it leaves the queue
+     */
+    private void submit(final AtomicInteger requestVersion, final LoadTask task) {
+        synchronized (activeTasks) {
+            /* The previous task of the same kind is superseded, stop its query instead of letting it finish */
+            for (LoadTask active : activeTasks) {
+                if (active.requestVersion == requestVersion) {
+                    active.cancel();
+                }
+            }
+            task.requestVersion = requestVersion;
+            task.token = requestVersion.incrementAndGet();
+            activeTasks.add(task);
+        }
+        getExecutorService().execute(task);
+    }
+
+    /**
+     * Unit of work of the loader
+     * A task carries the request version it was submitted with as its token. It's cancelled when a newer
+     * task of the same kind is submitted or the loader is aborted, which stops its running query through
+     * a {@link CancellationSignal} and keeps any result from reaching the listener.
+     */
+    private abstract class LoadTask implements Runnable {
+
+        private final CancellationSignal cancellationSignal = new CancellationSignal();
+        private AtomicInteger requestVersion;
+        private int token;
+
+        /* Ids of the filter are excluded by every query of the task */
+        ExclusionFilter exclusions = ExclusionFilter.NONE;
+
+        abstract void load();
+
+        @Override
+        public final void run() {
+            try {
+                if (isActive()) {
+                    load();
+                }
+            } catch (OperationCanceledException e) {
+                /* Cancelled while querying or reading, nothing to deliver */
+            } finally {
+                synchronized (activeTasks) {
+                    activeTasks.remove(this);
+                }
+            }
+        }
+
+        void cancel() {
+            cancellationSignal.cancel();
+        }
+
+        /**
+         * Whether the task may still deliver, checked right before every listener call
+         */
+        boolean isActive() {
+            return !cancellationSignal.isCanceled() && token == requestVersion.get();
+        }
+
+        /**
+         * Called in every row loop, unwinds the task through {@link #run()} once cancelled
+         */
+        void throwIfCanceled() {
+            cancellationSignal.throwIfCanceled();
+        }
+
+        @Nullable
+        Cursor query(String[] projection, boolean includeVideo, @Nullable Long bucketId,
+                     @Nullable String extraSelection, @Nullable String[] args) {
+            return query(getContentUri(includeVideo), projection,
+                    getSelection(includeVideo, bucketId, extraSelection, exclusions), args, SORT_ORDER);
+        }
+
+        /**
+         * Query {@code limit} rows starting at {@code offset}, so a CursorWindow never holds more than one window
+         * A provider may ignore the limit, callers treat a cursor longer than {@code limit} as the whole result
+         */
+        @Nullable
+        Cursor queryWindow(String[] projection, boolean includeVideo, @Nullable Long bucketId, int limit, int offset) {
+            return queryLimited(projection, includeVideo, bucketId, null, null, limit, offset);
+        }
+
+        /**
+         * Query up to {@code limit} rows sorted after the row with the given sort key, newest first
+         * The key matches {@link #SORT_ORDER}, so rows inserted or deleted above it don't shift the page
+         *
+         * @param afterDateAdded DATE_ADDED of the last row read, {@link Long#MAX_VALUE} for the first page
+         */
+        @Nullable
+        Cursor queryPage(String[] projection, boolean includeVideo, @Nullable Long bucketId, int limit,
+                         long afterDateAdded, long afterId) {
+            if (afterDateAdded == Long.MAX_VALUE) {
+                return queryLimited(projection, includeVideo, bucketId, null, null, limit, 0);
+            }
+            String keySelection = MediaStore.Images.Media.DATE_ADDED + "<? OR ("
+                    + MediaStore.Images.Media.DATE_ADDED + "=? AND " + MediaStore.Images.Media._ID + "<?)";
+            String[] keyArgs = new String[]{
+                    String.valueOf(afterDateAdded), String.valueOf(afterDateAdded), String.valueOf(afterId)};
+            return queryLimited(projection, includeVideo, bucketId, keySelection, keyArgs, limit, 0);
+        }
+
+        @Nullable
+        Cursor queryLimited(String[] projection, boolean includeVideo, @Nullable Long bucketId,
+                            @Nullable String extraSelection, @Nullable String[] args, int limit, int offset) {
+            Uri uri = getContentUri(includeVideo);
+            String selection = getSelection(includeVideo, bucketId, extraSelection, exclusions);
+            if (Build.VERSION.SDK_INT >= API_QUERY_ARGS) {
+                Bundle queryArgs = new Bundle();
+                queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, selection);
+                queryArgs.putStringArray(ContentResolver.QUERY_ARG_SQL_SELECTION_ARGS, args);
+                queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SORT_ORDER, SORT_ORDER);
+                queryArgs.putInt(ContentResolver.QUERY_ARG_LIMIT, limit);
+                if (offset > 0) {
+                    queryArgs.putInt(ContentResolver.QUERY_ARG_OFFSET, offset);
+                }
+                return context.getContentResolver().query(uri, projection, queryArgs, cancellationSignal);
+            }
+            String limitClause = offset > 0
+                    ? " LIMIT " + limit + " OFFSET " + offset
+                    : " LIMIT " + limit;
+            return query(uri, projection, selection, args, SORT_ORDER + limitClause);
+        }
+
+        @Nullable
+        Cursor query(Uri uri, String[] projection, @Nullable String selection, @Nullable String[] args,
+                     String sortOrder) {
+            return context.getContentResolver().query(uri, projection, selection, args, sortOrder,
+                    cancellationSignal);
+        }
+    }
+
     private ExecutorService getExecutorService() {
         if (executorService == null) {
             executorService = Executors.newSingleThreadExecutor();
@@ -52,96 +346,701 @@ public class ImageFileLoader {
         return executorService;
     }
 
-    private class ImageLoadRunnable implements Runnable {
+    /* --------------------------------------------------- */
+    /* > Query */
+    /* --------------------------------------------------- */
+
+    private static Uri getContentUri(boolean includeVideo) {
+        return includeVideo
+                ? MediaStore.Files.getContentUri("external")
+                : MediaStore.Images.Media.EXTERNAL_CONTENT_URI;
+    }
+
+    @Nullable
+    private static String getSelection(boolean includeVideo) {
+        if (!includeVideo) {
+            return null;
+        }
+        return MediaStore.Files.FileColumns.MEDIA_TYPE + "="
+                + MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE + " OR "
+                + MediaStore.Files.FileColumns.MEDIA_TYPE + "="
+                + MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO;
+    }
+
+    @Nullable
+    private static String getSelection(boolean includeVideo, @Nullable Long bucketId, @Nullable String extraSelection,
+                                       ExclusionFilter exclusions) {
+        String selection = getSelection(includeVideo);
+        if (exclusions.getSelection() != null) {
+            selection = and(selection, exclusions.getSelection());
+        }
+        if (bucketId != null) {
+            selection = and(selection, getBucketSelection(bucketId));
+        }
+        if (extraSelection != null) {
+            selection = and(selection, extraSelection);
+        }
+        return selection;
+    }
+
+    private static String and(@Nullable String selection, String other) {
+        return selection == null
+                ? other
+                : "(" + selection + ") AND (" + other + ")";
+    }
+
+    @Nullable
+    private static String getBucketSelection(@Nullable Long bucketId) {
+        return bucketId == null
+                ? null
+                : MediaStore.Images.Media.BUCKET_ID + "=" + bucketId;
+    }
+
+    /**
+     * Column indexes of {@link #projection}, resolved once per cursor
+     */
+    private class RowReader {
+
+        private final Cursor cursor;
+        private final int idColumn;
+        private final int pathColumn;
+        private final int bucketColumn;
+        private final int dateAddedColumn;
+        private final int dateModifiedColumn;
+        private final int dateTakenColumn;
+        private final int mimeTypeColumn;
+        private final int generationColumn;
+
+        private final ExclusionFilter exclusions;
+
+        private MediaSnapshot.SyncPoint syncPoint;
+
+        RowReader(Cursor cursor, ExclusionFilter exclusions) {
+            this(cursor, exclusions, MediaSnapshot.SyncPoint.NONE);
+        }
+
+        /**
+         * @param since sync point of the rows read from previous cursors of the same load
+         */
+        RowReader(Cursor cursor, ExclusionFilter exclusions, MediaSnapshot.SyncPoint since) {
+            this.cursor = cursor;
+            this.exclusions = exclusions;
+            this.syncPoint = since;
+            idColumn = cursor.getColumnIndex(MediaStore.Images.Media._ID);
+            pathColumn = cursor.getColumnIndex(MediaStore.Images.Media.DATA);
+            bucketColumn = cursor.getColumnIndex(MediaStore.Images.Media.BUCKET_DISPLAY_NAME);
+            dateAddedColumn = cursor.getColumnIndex(MediaStore.Images.Media.DATE_ADDED);
+            dateModifiedColumn = cursor.getColumnIndex(MediaStore.Images.Media.DATE_MODIFIED);
+            dateTakenColumn = cursor.getColumnIndex(MediaStore.Images.Media.DATE_TAKEN);
+            mimeTypeColumn = cursor.getColumnIndex(MediaStore.Images.Media.MIME_TYPE);
+            generationColumn = cursor.getColumnIndex(COLUMN_GENERATION_MODIFIED);
+        }
+
+        /**
+         * Append the current row to the builder
+         *
+         * @return false if the row has no usable path or is excluded
+         */
+        boolean read(MediaSnapshot.Builder builder) {
+            long dateModified = cursor.getLong(dateModifiedColumn);
+            long dateAdded = cursor.getLong(dateAddedColumn);
+            syncPoint = syncPoint.max(
+                    dateAdded,
+                    dateModified,
+                    generationColumn < 0 ? 0 : cursor.getLong(generationColumn));
+
+            String path = cursor.getString(pathColumn);
+            if (path == null || path.isEmpty()) {
+                return false;
+            }
+            long id = cursor.getLong(idColumn);
+            if (exclusions.isExcluded(id, path)) {
+                return false;
+            }
+
+            /* Null for files without EXIF date, in seconds unlike DATE_TAKEN */
+            long dateTaken = cursor.getLong(dateTakenColumn);
+            if (dateTaken <= 0) {
+                dateTaken = dateAdded * 1000;
+            }
+
+            byte type = MediaSnapshot.resolveType(cursor.getString(mimeTypeColumn), path);
+            builder.add(id, path, cursor.getString(bucketColumn), dateModified, dateAdded, dateTaken, type);
+            return true;
+        }
+
+        long getId() {
+            return cursor.getLong(idColumn);
+        }
+
+        long getDateAdded() {
+            return cursor.getLong(dateAddedColumn);
+        }
+
+        MediaSnapshot.SyncPoint getSyncPoint() {
+            return syncPoint;
+        }
+    }
+
+    /* --------------------------------------------------- */
+    /* > Full load */
+    /* --------------------------------------------------- */
+
+    private class ImageLoadRunnable extends LoadTask {
 
         private boolean isFolderMode;
         private boolean includeVideo;
-        private ArrayList<File> exlucedImages;
+        private Long bucketId;
+        private int firstPageSize;
+        private int pageSize;
         private ImageLoaderListener listener;
 
-        public ImageLoadRunnable(boolean isFolderMode, boolean includeVideo, ArrayList<File> excludedImages, ImageLoaderListener listener) {
+        public ImageLoadRunnable(boolean isFolderMode, boolean includeVideo, ExclusionFilter exclusions, Long bucketId,
+                                 int firstPageSize, int pageSize, ImageLoaderListener listener) {
             this.isFolderMode = isFolderMode;
             this.includeVideo = includeVideo;
-            this.exlucedImages = excludedImages;
+            this.exclusions = exclusions;
+            this.bucketId = bucketId;
+            this.firstPageSize = firstPageSize;
+            this.pageSize = pageSize;
             this.listener = listener;
         }
 
         @Override
-        public void run() {
+        void load() {
+            final boolean isPaged = !isFolderMode && firstPageSize > 0 && pageSize > 0;
+
+            MediaSnapshot.Builder builder = null;
+            MediaSnapshot.SyncPoint syncPoint = MediaSnapshot.SyncPoint.NONE;
+            int delivered = 0;
+
+            /* Sort key of the last row read, excluded rows included, the next page starts after it */
+            long lastDateAdded = Long.MAX_VALUE;
+            long lastId = Long.MAX_VALUE;
+
+            while (true) {
+                int window = !isPaged ? 0 : builder == null ? firstPageSize : pageSize;
+                Cursor cursor = window == 0
+                        ? query(projection, includeVideo, bucketId, null, null)
+                        : queryPage(projection, includeVideo, bucketId, window, lastDateAdded, lastId);
+
+                if (cursor == null) {
+                    if (isActive()) {
+                        listener.onFailed(new NullPointerException());
+                    }
+                    return;
+                }
+
+                int rows = cursor.getCount();
+                if (builder == null) {
+                    builder = new MediaSnapshot.Builder(rows, 64);
+                }
+
+                RowReader reader = new RowReader(cursor, exclusions, syncPoint);
+                try {
+                    while (cursor.moveToNext()) {
+                        throwIfCanceled();
+                        lastDateAdded = reader.getDateAdded();
+                        lastId = reader.getId();
+                        reader.read(builder);
+                    }
+                } finally {
+                    cursor.close();
+                }
+                syncPoint = reader.getSyncPoint();
+
+                /* A short window is the last one, a long one means the provider ignored the limit */
+                if (window == 0 || rows != window) {
+                    break;
+                }
+
+                if (builder.size() > delivered) {
+                    if (!isActive()) {
+                        return;
+                    }
+                    listener.onImagePageLoaded(builder.build(), delivered == 0);
+                    delivered = builder.size();
+                }
+            }
+
+            MediaSnapshot snapshot = builder.setSyncPoint(syncPoint).build();
+
+            List<Folder> folders = isFolderMode
+                    ? snapshot.toFolders()
+                    : null;
+
+            /* Build the fast scroll index here rather than on the first drag */
+            snapshot.getSections();
+
+            if (!isActive()) {
+                return;
+            }
+
+            /* Flush the tail page, only when the first page has already been delivered */
+            if (delivered > 0 && delivered < snapshot.size()) {
+                listener.onImagePageLoaded(snapshot, false);
+            }
+            listener.onImageLoaded(snapshot, folders);
+            if (bucketId == null) {
+                persist(snapshot, includeVideo, exclusions);
+            }
+        }
+    }
+
+    /* --------------------------------------------------- */
+    /* > Window */
+    /* --------------------------------------------------- */
+
+    private class WindowLoadRunnable extends LoadTask {
+
+        private int offset;
+        private int limit;
+        private boolean includeVideo;
+        private Long bucketId;
+        private MediaWindowListener listener;
+
+        public WindowLoadRunnable(int offset, int limit, boolean includeVideo, ExclusionFilter exclusions,
+                                  Long bucketId, MediaWindowListener listener) {
+            this.offset = offset;
+            this.limit = limit;
+            this.includeVideo = includeVideo;
+            this.exclusions = exclusions;
+            this.bucketId = bucketId;
+            this.listener = listener;
+        }
+
+        @Override
+        void load() {
             Cursor cursor;
-            if (includeVideo) {
-                String selection = MediaStore.Files.FileColumns.MEDIA_TYPE + "="
-                        + MediaStore.Files.FileColumns.MEDIA_TYPE_IMAGE + " OR "
-                        + MediaStore.Files.FileColumns.MEDIA_TYPE + "="
-                        + MediaStore.Files.FileColumns.MEDIA_TYPE_VIDEO;
-
-                cursor = context.getContentResolver().query(MediaStore.Files.getContentUri("external"), projection,
-                        selection, null, MediaStore.Images.Media.DATE_ADDED);
+            try {
+                cursor = queryWindow(projection, includeVideo, bucketId, limit, offset);
+            } catch (OperationCanceledException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                /* E.g. storage permission not granted, the caller is waiting for an answer */
+                if (isActive()) {
+                    listener.onFailed(e);
+                }
+                return;
+            }
+            if (cursor == null) {
+                if (isActive()) {
+                    listener.onFailed(new NullPointerException());
+                }
+                return;
+            }
+
+            int rows = cursor.getCount();
+            /* Longer than the window means the provider ignored it and returned every row */
+            boolean isWhole = rows > limit;
+
+            MediaSnapshot.Builder builder = new MediaSnapshot.Builder(Math.min(rows, limit), 64);
+            RowReader reader = new RowReader(cursor, exclusions);
+            int read = 0;
+            try {
+                if (isWhole) {
+                    cursor.moveToPosition(offset - 1);
+                }
+                while (read < limit && cursor.moveToNext()) {
+                    throwIfCanceled();
+                    reader.read(builder);
+                    read++;
+                }
+            } finally {
+                cursor.close();
+            }
+
+            boolean hasMore = isWhole
+                    ? offset + read < rows
+                    : limit > 0 && rows == limit;
+            MediaSnapshot window = builder.setSyncPoint(reader.getSyncPoint()).build();
+            if (!isActive()) {
+                return;
+            }
+            listener.onWindowLoaded(window, hasMore ? offset + read : -1);
+        }
+    }
+
+    /* --------------------------------------------------- */
+    /* > Incremental sync */
+    /* --------------------------------------------------- */
+
+    private class ImageSyncRunnable extends LoadTask {
+
+        private MediaSnapshot previous;
+        private boolean includeVideo;
+        private Long bucketId;
+        private ImageSyncListener listener;
+
+        public ImageSyncRunnable(MediaSnapshot previous, boolean includeVideo,
+                                 ExclusionFilter exclusions, Long bucketId, ImageSyncListener listener) {
+            this.previous = previous;
+            this.includeVideo = includeVideo;
+            this.exclusions = exclusions;
+            this.bucketId = bucketId;
+            this.listener = listener;
+        }
+
+        @Override
+        void load() {
+            MediaSnapshot.SyncPoint since = previous.getSyncPoint();
+
+            /* 1. Rows added or modified since the previous snapshot */
+            String changedSelection;
+            String[] changedArgs;
+            if (isGenerationSupported() && since.getGeneration() > 0) {
+                changedSelection = COLUMN_GENERATION_MODIFIED + ">?";
+                changedArgs = new String[]{String.valueOf(since.getGeneration())};
             } else {
-                cursor = context.getContentResolver().query(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, projection,
-                        null, null, MediaStore.Images.Media.DATE_ADDED);
+                /* Seconds resolution, rows of the same second are read again and compared in step 4 */
+                changedSelection = MediaStore.Images.Media.DATE_ADDED + ">=? OR "
+                        + MediaStore.Images.Media.DATE_MODIFIED + ">=?";
+                changedArgs = new String[]{
+                        String.valueOf(since.getDateAdded()),
+                        String.valueOf(since.getDateModified())};
             }
 
+            Cursor cursor = query(projection, includeVideo, bucketId, changedSelection, changedArgs);
             if (cursor == null) {
-                listener.onFailed(new NullPointerException());
+                if (isActive()) {
+                    listener.onFailed(new NullPointerException());
+                }
                 return;
             }
 
-            List<Image> temp = new ArrayList<>();
-            Map<String, Folder> folderMap = null;
-            if (isFolderMode) {
-                folderMap = new HashMap<>();
+            MediaSnapshot.Builder changedBuilder = new MediaSnapshot.Builder(cursor.getCount(), 64);
+            RowReader reader = new RowReader(cursor, exclusions);
+            try {
+                while (cursor.moveToNext()) {
+                    throwIfCanceled();
+                    reader.read(changedBuilder);
+                }
+            } finally {
+                cursor.close();
             }
+            MediaSnapshot.SyncPoint syncPoint = since.max(
+                    reader.getSyncPoint().getDateAdded(),
+                    reader.getSyncPoint().getDateModified(),
+                    reader.getSyncPoint().getGeneration());
 
-            if (cursor.moveToLast()) {
-                do {
-                    long id = cursor.getLong(cursor.getColumnIndex(projection[0]));
-                    String name = cursor.getString(cursor.getColumnIndex(projection[1]));
-                    String path = cursor.getString(cursor.getColumnIndex(projection[2]));
-                    String bucket = cursor.getString(cursor.getColumnIndex(projection[3]));
+            /* 2. Ids of every row still present, in display order, to find deletions */
+            /* Paths are only read when needed to tell excluded rows apart, otherwise they'd be fetched as missing */
+            final boolean hasRowFilter = exclusions.hasRowFilter();
+            String[] idProjection = hasRowFilter
+                    ? new String[]{MediaStore.Images.Media._ID, MediaStore.Images.Media.DATA}
+                    : new String[]{MediaStore.Images.Media._ID};
+            cursor = query(idProjection, includeVideo, bucketId, null, null);
+            if (cursor == null) {
+                if (isActive()) {
+                    listener.onFailed(new NullPointerException());
+                }
+                return;
+            }
 
-                    File file = makeSafeFile(path);
-                    if (file != null) {
-                        if (exlucedImages != null && exlucedImages.contains(file))
+            MediaSnapshot changed = changedBuilder.build();
+            long[] ids = new long[cursor.getCount()];
+            int idCount = 0;
+            List<String> missingIds = new ArrayList<>();
+            try {
+                while (cursor.moveToNext()) {
+                    throwIfCanceled();
+                    long id = cursor.getLong(0);
+                    if (hasRowFilter) {
+                        String path = cursor.getString(1);
+                        if (path == null || path.isEmpty() || exclusions.isExcluded(id, path)) {
                             continue;
+                        }
+                    }
+                    ids[idCount++] = id;
+                    if (!changed.containsId(id) && !previous.containsId(id)) {
+                        missingIds.add(String.valueOf(id));
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
 
-                        Image image = new Image(id, name, path);
-                        temp.add(image);
-
-                        if (folderMap != null) {
-                            Folder folder = folderMap.get(bucket);
-                            if (folder == null) {
-                                folder = new Folder(bucket);
-                                folderMap.put(bucket, folder);
-                            }
-                            folder.getImages().add(image);
+            /* 3. Rows the markers didn't catch, e.g. after a MediaStore version change */
+            if (!missingIds.isEmpty()) {
+                for (int from = 0; from < missingIds.size(); from += MAX_SELECTION_ARGS) {
+                    List<String> chunk = missingIds.subList(from, Math.min(from + MAX_SELECTION_ARGS, missingIds.size()));
+                    cursor = query(projection, includeVideo, bucketId, idSelection(chunk.size()), chunk.toArray(new String[0]));
+                    if (cursor == null) {
+                        continue;
+                    }
+                    reader = new RowReader(cursor, exclusions);
+                    try {
+                        while (cursor.moveToNext()) {
+                            throwIfCanceled();
+                            reader.read(changedBuilder);
                         }
+                    } finally {
+                        cursor.close();
                     }
+                }
+                changed = changedBuilder.build();
+            }
 
-                } while (cursor.moveToPrevious());
+            /* 4. Merge, keeping the order of the id scan. Rows read again but unchanged are not reported */
+            MediaSnapshot.Builder builder = new MediaSnapshot.Builder(idCount, 64);
+            long[] changedIds = new long[changed.size()];
+            int changedCount = 0;
+            for (int i = 0; i < idCount; i++) {
+                long id = ids[i];
+                int position = changed.indexOfId(id);
+                int previousPosition = previous.indexOfId(id);
+                if (position >= 0 && (previousPosition < 0
+                        || !changed.isSameRow(position, previous, previousPosition))) {
+                    builder.addFrom(changed, position);
+                    if (previousPosition >= 0) {
+                        changedIds[changedCount++] = id;
+                    }
+                } else if (previousPosition >= 0) {
+                    builder.addFrom(previous, previousPosition);
+                }
             }
-            cursor.close();
 
-            /* Convert HashMap to ArrayList if not null */
-            List<Folder> folders = null;
-            if (folderMap != null) {
-                folders = new ArrayList<>(folderMap.values());
+            MediaSnapshot current = builder.setSyncPoint(syncPoint).build();
+
+            MediaDelta delta = new MediaDelta(previous, current, Arrays.copyOf(changedIds, changedCount));
+            if (!isActive()) {
+                return;
+            }
+            listener.onImageSynced(delta);
+            if (bucketId == null && !delta.isEmpty()) {
+                persist(current, includeVideo, exclusions);
             }
+        }
 
-            listener.onImageLoaded(temp, folders);
+        private String idSelection(int count) {
+            StringBuilder selection = new StringBuilder(MediaStore.Images.Media._ID).append(" IN (");
+            for (int i = 0; i < count; i++) {
+                selection.append(i == 0 ? "?" : ",?");
+            }
+            return selection.append(')').toString();
         }
     }
 
-    @Nullable
-    private static File makeSafeFile(String path) {
-        if (path == null || path.isEmpty()) {
-            return null;
+    /* --------------------------------------------------- */
+    /* > Folders */
+    /* --------------------------------------------------- */
+
+    private class FolderLoadRunnable extends LoadTask {
+
+        private boolean includeVideo;
+        private FolderLoaderListener listener;
+
+        public FolderLoadRunnable(boolean includeVideo, ExclusionFilter exclusions, FolderLoaderListener listener) {
+            this.includeVideo = includeVideo;
+            this.exclusions = exclusions;
+            this.listener = listener;
         }
-        try {
-            return new File(path);
-        } catch (Exception ignored) {
-            return null;
+
+        @Override
+        void load() {
+            /* Path and folder exclusions can't be expressed in SQL, count them row by row instead */
+            List<Folder> folders = null;
+            if (!exclusions.hasRowFilter()) {
+                folders = Build.VERSION.SDK_INT < API_NO_GROUP_BY
+                        ? queryGrouped()
+                        : queryPerBucket();
+            }
+            if (folders == null) {
+                folders = queryScanned();
+            }
+            if (!isActive()) {
+                return;
+            }
+            if (folders == null) {
+                listener.onFailed(new NullPointerException());
+                return;
+            }
+            listener.onFolderLoaded(folders);
+        }
+
+        /**
+         * One row per folder, aggregated by MediaStore
+         * Relies on the selection being wrapped in parentheses, which is no longer allowed from Android 10
+         */
+        @Nullable
+        private List<Folder> queryGrouped() {
+            String[] projection = new String[]{
+                    MediaStore.Images.Media.BUCKET_ID,
+                    MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+                    "COUNT(*)",
+                    /* SQLite fills the bare columns below from the row holding the max */
+                    "MAX(" + MediaStore.Images.Media.DATE_ADDED + ")",
+                    MediaStore.Images.Media._ID,
+                    MediaStore.Images.Media.DATA,
+                    MediaStore.Images.Media.MIME_TYPE,
+                    MediaStore.Images.Media.DATE_MODIFIED
+            };
+            String selection = getSelection(includeVideo, null, null, exclusions);
+            String groupedSelection = (selection == null ? "1" : "(" + selection + ")")
+                    + ") GROUP BY (" + MediaStore.Images.Media.BUCKET_ID;
+
+            Cursor cursor;
+            try {
+                cursor = query(getContentUri(includeVideo), projection,
+                        groupedSelection, null, "MAX(" + MediaStore.Images.Media.DATE_ADDED + ") DESC");
+            } catch (OperationCanceledException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                return null;
+            }
+            if (cursor == null) {
+                return null;
+            }
+
+            List<Folder> folders = new ArrayList<>(cursor.getCount());
+            try {
+                while (cursor.moveToNext()) {
+                    String coverPath = cursor.getString(5);
+                    if (coverPath == null || coverPath.isEmpty()) {
+                        continue;
+                    }
+                    folders.add(new Folder(cursor.getLong(0), cursor.getString(1), cursor.getInt(2),
+                            cursor.getLong(4), coverPath, MediaSnapshot.resolveType(cursor.getString(6), coverPath),
+                            cursor.getLong(7)));
+                }
+            } finally {
+                cursor.close();
+            }
+            return folders;
+        }
+
+        /**
+         * One query for the newest image outside the folders found so far, which is the cover of the next folder,
+         * then one count of that folder. Two single row cursors per folder instead of a row per image.
+         */
+        @Nullable
+        private List<Folder> queryPerBucket() {
+            String[] coverProjection = new String[]{
+                    MediaStore.Images.Media.BUCKET_ID,
+                    MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+                    MediaStore.Images.Media._ID,
+                    MediaStore.Images.Media.DATA,
+                    MediaStore.Images.Media.MIME_TYPE,
+                    MediaStore.Images.Media.DATE_MODIFIED
+            };
+            String[] countProjection = new String[]{MediaStore.Images.Media._ID};
+            Uri uri = getContentUri(includeVideo);
+
+            List<Folder> folders = new ArrayList<>();
+            StringBuilder foundBuckets = new StringBuilder();
+            try {
+                while (true) {
+                    throwIfCanceled();
+                    String otherBuckets = foundBuckets.length() == 0
+                            ? null
+                            : MediaStore.Images.Media.BUCKET_ID + " NOT IN (" + foundBuckets + ")";
+                    Cursor cursor = queryLimited(coverProjection, includeVideo, null, otherBuckets, null, 1, 0);
+                    if (cursor == null) {
+                        return null;
+                    }
+
+                    long bucketId;
+                    String name;
+                    long coverId;
+                    String coverPath;
+                    byte coverType;
+                    long coverDateModified;
+                    try {
+                        if (!cursor.moveToFirst()) {
+                            return folders;
+                        }
+                        bucketId = cursor.getLong(0);
+                        name = cursor.getString(1);
+                        coverId = cursor.getLong(2);
+                        coverPath = cursor.getString(3);
+                        coverType = MediaSnapshot.resolveType(cursor.getString(4), coverPath);
+                        coverDateModified = cursor.getLong(5);
+                    } finally {
+                        cursor.close();
+                    }
+                    foundBuckets.append(foundBuckets.length() == 0 ? "" : ",").append(bucketId);
+
+                    /* The provider counts the rows, the cursor only carries the first window of ids */
+                    cursor = query(uri, countProjection,
+                            getSelection(includeVideo, bucketId, null, exclusions), null, null);
+                    if (cursor == null) {
+                        return null;
+                    }
+                    int count;
+                    try {
+                        count = cursor.getCount();
+                    } finally {
+                        cursor.close();
+                    }
+
+                    if (count > 0 && coverPath != null && !coverPath.isEmpty()) {
+                        folders.add(new Folder(bucketId, name, count, coverId, coverPath, coverType,
+                                coverDateModified));
+                    }
+                }
+            } catch (OperationCanceledException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Fallback reading only the columns needed to count, newest first so the first row of a folder is its cover
+         */
+        @Nullable
+        private List<Folder> queryScanned() {
+            String[] projection = new String[]{
+                    MediaStore.Images.Media.BUCKET_ID,
+                    MediaStore.Images.Media.BUCKET_DISPLAY_NAME,
+                    MediaStore.Images.Media._ID,
+                    MediaStore.Images.Media.DATA,
+                    MediaStore.Images.Media.MIME_TYPE,
+                    MediaStore.Images.Media.DATE_MODIFIED
+            };
+            Cursor cursor = query(getContentUri(includeVideo), projection,
+                    getSelection(includeVideo, null, null, exclusions), null, SORT_ORDER);
+            if (cursor == null) {
+                return null;
+            }
+
+            List<Long> order = new ArrayList<>();
+            Map<Long, Object[]> folderRows = new HashMap<>();
+            try {
+                while (cursor.moveToNext()) {
+                    throwIfCanceled();
+                    String path = cursor.getString(3);
+                    if (path == null || path.isEmpty()) {
+                        continue;
+                    }
+                    if (exclusions.isExcluded(cursor.getLong(2), path)) {
+                        continue;
+                    }
+
+                    long bucketId = cursor.getLong(0);
+                    Object[] folder = folderRows.get(bucketId);
+                    if (folder == null) {
+                        /* name, count, cover id, cover path, cover type, cover modification date */
+                        folder = new Object[]{cursor.getString(1), new int[1], cursor.getLong(2), path,
+                                MediaSnapshot.resolveType(cursor.getString(4), path), cursor.getLong(5)};
+                        folderRows.put(bucketId, folder);
+                        order.add(bucketId);
+                    }
+                    ((int[]) folder[1])[0]++;
+                }
+            } finally {
+                cursor.close();
+            }
+
+            List<Folder> folders = new ArrayList<>(order.size());
+            for (Long bucketId : order) {
+                Object[] folder = folderRows.get(bucketId);
+                folders.add(new Folder(bucketId, (String) folder[0], ((int[]) folder[1])[0],
+                        (Long) folder[2], (String) folder[3], (Byte) folder[4], (Long) folder[5]));
+            }
+            return folders;
         }
     }
 
+
 }
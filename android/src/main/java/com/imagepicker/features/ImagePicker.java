@@ -3,6 +3,7 @@ package com.imagepicker.features;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
@@ -46,6 +47,10 @@ public abstract class ImagePicker {
         public void start() {
             activity.startActivityForResult(getIntent(activity), IpCons.RC_IMAGE_PICKER);
         }
+
+        public ImagePicker prefetch() {
+            return prefetch(activity);
+        }
     }
 
     public static class ImagePickerWithFragment extends ImagePicker {
@@ -66,6 +71,10 @@ public abstract class ImagePicker {
         public void start() {
             fragment.startActivityForResult(getIntent(fragment.getActivity()), IpCons.RC_IMAGE_PICKER);
         }
+
+        public ImagePicker prefetch() {
+            return prefetch(fragment.getActivity());
+        }
     }
 
     /* --------------------------------------------------- */
@@ -112,6 +121,79 @@ public abstract class ImagePicker {
         return this;
     }
 
+    /**
+     * Stream images to the grid while the library is still being read
+     * The newest {@code firstPageSize} images are shown first, the rest are appended in chunks of {@code pageSize}
+     * Pass 0 as {@code pageSize} to wait for the whole library before showing anything
+     */
+    public ImagePicker pagedLoading(int firstPageSize, int pageSize) {
+        config.setFirstPageSize(firstPageSize);
+        config.setPageSize(pageSize);
+        return this;
+    }
+
+    /**
+     * Keep the loaded images in an index file in the app cache dir
+     * The next picker opens with the grid drawn from that index while MediaStore is checked in the background
+     */
+    public ImagePicker cacheIndex(boolean cacheIndex) {
+        config.setCacheIndex(cacheIndex);
+        return this;
+    }
+
+    /**
+     * Show a draggable thumb labelled with the month of the images next to it on long grids, enabled by default
+     */
+    public ImagePicker fastScroll(boolean fastScroll) {
+        config.setFastScroll(fastScroll);
+        return this;
+    }
+
+    /**
+     * Draw every grid cell as one view instead of a layout of four, less measure and layout work per cell
+     */
+    public ImagePicker flatCells(boolean flatCells) {
+        config.setFlatCells(flatCells);
+        return this;
+    }
+
+    /**
+     * Decode the thumbnails of the next {@code rows} rows in the scroll direction before they are shown
+     * The lookahead grows with the scroll speed, pass 0 to disable preloading
+     */
+    public ImagePicker preloadRows(int rows) {
+        config.setPreloadRows(rows);
+        return this;
+    }
+
+    /**
+     * Return JPEG copies no larger than {@code maxDimension} on their longest side instead of the picked files
+     * Copies are turned upright from their EXIF orientation and written to the app cache dir
+     */
+    public ImagePicker resize(int maxDimension) {
+        return resize(maxDimension, Bitmap.CompressFormat.JPEG, IpCons.DEFAULT_RESIZE_QUALITY);
+    }
+
+    /**
+     * Same as {@link #resize(int)}, encoded in {@code format} with {@code quality} from 0 to 100
+     */
+    public ImagePicker resize(int maxDimension, Bitmap.CompressFormat format, int quality) {
+        config.setResizeMaxDimension(maxDimension);
+        config.setResizeFormat(format);
+        config.setResizeQuality(quality);
+        return this;
+    }
+
+    /**
+     * Coalesce MediaStore change bursts into one refresh
+     * The refresh runs after {@code quietPeriodMillis} without changes, at most {@code maxDelayMillis} after the first one
+     */
+    public ImagePicker refreshDebounce(long quietPeriodMillis, long maxDelayMillis) {
+        config.setRefreshQuietPeriod(quietPeriodMillis);
+        config.setRefreshMaxDelay(maxDelayMillis);
+        return this;
+    }
+
     public ImagePicker showCamera(boolean show) {
         config.setShowCamera(show);
         return this;
@@ -152,6 +234,22 @@ public abstract class ImagePicker {
         return this;
     }
 
+    /**
+     * Exclude images by MediaStore id, short lists are excluded by the query itself
+     */
+    public ImagePicker excludeIds(long[] ids) {
+        config.setExcludedIds(ids);
+        return this;
+    }
+
+    /**
+     * Exclude every image inside the given folders and their subfolders
+     */
+    public ImagePicker excludeFolders(ArrayList<String> folderPaths) {
+        config.setExcludedFolders(folderPaths);
+        return this;
+    }
+
     public ImagePicker folderMode(boolean folderMode) {
         config.setFolderMode(folderMode);
         return this;
@@ -198,6 +296,16 @@ public abstract class ImagePicker {
         return config;
     }
 
+    /**
+     * Start querying the device images with the current options before the picker is opened
+     * The next picker started with the same options shows this result instead of querying again
+     * Does nothing until the storage permission has been granted
+     */
+    public ImagePicker prefetch(Context context) {
+        MediaPrefetcher.getInstance().prefetch(context, ConfigUtils.checkConfig(getConfig()));
+        return this;
+    }
+
     public Intent getIntent(Context context) {
         ImagePickerConfig config = ConfigUtils.checkConfig(getConfig());
         Intent intent = new Intent(context, ImagePickerActivity.class);
@@ -41,6 +41,7 @@ import com.imagepicker.features.cameraonly.CameraOnlyConfig;
 import com.imagepicker.features.common.BaseConfig;
 import com.imagepicker.features.recyclers.OnBackAction;
 import com.imagepicker.features.recyclers.RecyclerViewManager;
+import com.imagepicker.helper.ChangeCoalescer;
 import com.imagepicker.helper.ConfigUtils;
 import com.imagepicker.helper.ImagePickerPreferences;
 import com.imagepicker.helper.IpLogger;
@@ -48,6 +49,8 @@ import com.imagepicker.helper.LocaleManager;
 import com.imagepicker.helper.ViewUtils;
 import com.imagepicker.model.Folder;
 import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaDelta;
+import com.imagepicker.model.MediaSnapshot;
 import com.imagepicker.view.SnackBarView;
 
 import java.util.ArrayList;
@@ -83,6 +86,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
 
     private Handler handler;
     private ContentObserver observer;
+    private ChangeCoalescer changeCoalescer;
 
     private boolean isCameraOnly;
 
@@ -197,7 +201,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
         );
 
         recyclerViewManager.setupAdapters((isSelected) -> recyclerViewManager.selectImage(isSelected)
-                , bucket -> setImageAdapter(bucket.getImages()));
+                , bucket -> presenter.openFolder(config, bucket));
 
         recyclerViewManager.setImageSelectedListener(selectedImage -> {
 
@@ -219,14 +223,6 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
         presenter.attachView(this);
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        if (!isCameraOnly) {
-            getDataWithPermission();
-        }
-    }
-
     @Override
     protected void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
@@ -245,7 +241,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
      * 2. Update item decoration
      * 3. Update title
      */
-    private void setImageAdapter(List<Image> images) {
+    private void setImageAdapter(MediaSnapshot images) {
         recyclerViewManager.setImageAdapter(images);
         invalidateTitle();
     }
@@ -324,7 +320,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
      * Get all selected images then return image to caller activity
      */
     private void onDone() {
-        presenter.onDoneSelectImages(recyclerViewManager.getSelectedImages());
+        presenter.onDoneSelectImages(this, recyclerViewManager.getSelectedImages(), getImagePickerConfig());
     }
 
     /**
@@ -353,9 +349,8 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
 
     private void getData() {
         ImagePickerConfig config = getImagePickerConfig();
-        presenter.abortLoad();
         if (config != null) {
-            presenter.loadImages(config);
+            presenter.requestRefresh(config);
         }
     }
 
@@ -529,13 +524,42 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
         if (handler == null) {
             handler = new Handler();
         }
+        if (changeCoalescer == null) {
+            ImagePickerConfig config = getImagePickerConfig();
+            changeCoalescer = new ChangeCoalescer(handler,
+                    config.getRefreshQuietPeriod(),
+                    config.getRefreshMaxDelay(),
+                    this::getData);
+        }
         observer = new ContentObserver(handler) {
             @Override
             public void onChange(boolean selfChange) {
-                getData();
+                changeCoalescer.onChange();
             }
         };
-        getContentResolver().registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, false, observer);
+        getContentResolver().registerContentObserver(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, true, observer);
+        if (getImagePickerConfig().isIncludeVideo()) {
+            getContentResolver().registerContentObserver(MediaStore.Video.Media.EXTERNAL_CONTENT_URI, true, observer);
+        }
+
+        /* Loads on first start, later starts sync what changed while the observer was unregistered */
+        getDataWithPermission();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        unregisterObserver();
+    }
+
+    private void unregisterObserver() {
+        if (observer != null) {
+            getContentResolver().unregisterContentObserver(observer);
+            observer = null;
+        }
+        if (changeCoalescer != null) {
+            changeCoalescer.cancel();
+        }
     }
 
     @Override
@@ -546,10 +570,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
             presenter.detachView();
         }
 
-        if (observer != null) {
-            getContentResolver().unregisterContentObserver(observer);
-            observer = null;
-        }
+        unregisterObserver();
 
         if (handler != null) {
             handler.removeCallbacksAndMessages(null);
@@ -567,6 +588,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
         recyclerViewManager.handleBack(new OnBackAction() {
             @Override
             public void onBackToFolder() {
+                presenter.closeFolder();
                 invalidateTitle();
             }
 
@@ -598,7 +620,7 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
     }
 
     @Override
-    public void showFetchCompleted(List<Image> images, List<Folder> folders) {
+    public void showFetchCompleted(MediaSnapshot images, List<Folder> folders) {
         ImagePickerConfig config = getImagePickerConfig();
         if (config != null && config.isFolderMode()) {
             setFolderAdapter(folders);
@@ -607,6 +629,30 @@ public class ImagePickerActivity extends AppCompatActivity implements ImagePicke
         }
     }
 
+    @Override
+    public void showFetchPage(MediaSnapshot images) {
+        recyclerViewManager.appendImages(images);
+    }
+
+    @Override
+    public void showFetchDelta(MediaDelta delta) {
+        recyclerViewManager.applyDelta(delta);
+        invalidateTitle();
+    }
+
+    @Override
+    public void showFoldersUpdated(List<Folder> folders) {
+        if (!recyclerViewManager.updateFolders(folders)) {
+            presenter.closeFolder();
+        }
+        invalidateTitle();
+    }
+
+    @Override
+    public void showFolderImages(MediaSnapshot images) {
+        setImageAdapter(images);
+    }
+
     @Override
     public void showError(Throwable throwable) {
         String message = "Unknown Error";
@@ -1,5 +1,6 @@
 package com.imagepicker.features;
 
+import android.graphics.Bitmap;
 import android.os.Parcel;
 import android.os.Parcelable;
 
@@ -11,6 +12,7 @@ import com.imagepicker.model.Image;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class ImagePickerConfig extends BaseConfig implements Parcelable {
 
@@ -18,6 +20,13 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
 
     private ArrayList<Image> selectedImages;
     private ArrayList<File> excludedImages;
+    private long[] excludedIds;
+    /* Ids of the images passed to setExcludedImages, kept apart so they don't replace the explicit ids */
+    private long[] excludedImageIds;
+    private ArrayList<String> excludedFolders;
+
+    /* Built from the three lists above on first use */
+    private transient ExclusionFilter exclusionFilter;
 
     private String folderTitle;
     private String imageTitle;
@@ -27,10 +36,21 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
     private int mode;
     private int limit;
     private int theme;
+    private int firstPageSize;
+    private int pageSize;
+    private long refreshQuietPeriod;
+    private long refreshMaxDelay;
+    private int preloadRows;
+    private int resizeMaxDimension;
+    private int resizeQuality;
+    private Bitmap.CompressFormat resizeFormat;
 
     private boolean folderMode;
     private boolean includeVideo;
     private boolean showCamera;
+    private boolean cacheIndex;
+    private boolean flatCells;
+    private boolean fastScroll;
 
     private ImageLoader imageLoader;
 
@@ -63,6 +83,22 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
         this.limit = limit;
     }
 
+    public int getFirstPageSize() {
+        return firstPageSize;
+    }
+
+    public void setFirstPageSize(int firstPageSize) {
+        this.firstPageSize = firstPageSize;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
     public boolean isShowCamera() {
         return showCamera;
     }
@@ -71,6 +107,81 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
         this.showCamera = showCamera;
     }
 
+    public long getRefreshQuietPeriod() {
+        return refreshQuietPeriod;
+    }
+
+    public void setRefreshQuietPeriod(long refreshQuietPeriod) {
+        this.refreshQuietPeriod = refreshQuietPeriod;
+    }
+
+    public long getRefreshMaxDelay() {
+        return refreshMaxDelay;
+    }
+
+    public void setRefreshMaxDelay(long refreshMaxDelay) {
+        this.refreshMaxDelay = refreshMaxDelay;
+    }
+
+    public int getPreloadRows() {
+        return preloadRows;
+    }
+
+    public void setPreloadRows(int preloadRows) {
+        this.preloadRows = preloadRows;
+    }
+
+    /**
+     * Longest side of the returned images, 0 to return the picked files as they are
+     */
+    public int getResizeMaxDimension() {
+        return resizeMaxDimension;
+    }
+
+    public void setResizeMaxDimension(int resizeMaxDimension) {
+        this.resizeMaxDimension = resizeMaxDimension;
+    }
+
+    public int getResizeQuality() {
+        return resizeQuality;
+    }
+
+    public void setResizeQuality(int resizeQuality) {
+        this.resizeQuality = resizeQuality;
+    }
+
+    public Bitmap.CompressFormat getResizeFormat() {
+        return resizeFormat;
+    }
+
+    public void setResizeFormat(Bitmap.CompressFormat resizeFormat) {
+        this.resizeFormat = resizeFormat;
+    }
+
+    public boolean isCacheIndex() {
+        return cacheIndex;
+    }
+
+    public void setCacheIndex(boolean cacheIndex) {
+        this.cacheIndex = cacheIndex;
+    }
+
+    public boolean isFlatCells() {
+        return flatCells;
+    }
+
+    public void setFlatCells(boolean flatCells) {
+        this.flatCells = flatCells;
+    }
+
+    public boolean isFastScroll() {
+        return fastScroll;
+    }
+
+    public void setFastScroll(boolean fastScroll) {
+        this.fastScroll = fastScroll;
+    }
+
     public boolean isIncludeVideo() {
         return includeVideo;
     }
@@ -115,19 +226,73 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
         return excludedImages;
     }
 
+    /**
+     * Images are excluded by path, and by MediaStore id when they have one
+     */
     public void setExcludedImages(ArrayList<Image> excludedImages) {
         if (excludedImages != null && !excludedImages.isEmpty()) {
             this.excludedImages = new ArrayList<>();
+            long[] ids = new long[excludedImages.size()];
+            int idCount = 0;
             for (Image image : excludedImages) {
                 this.excludedImages.add(new File(image.getPath()));
+                if (image.getId() != 0) {
+                    ids[idCount++] = image.getId();
+                }
             }
+            this.excludedImageIds = idCount == 0 ? null : Arrays.copyOf(ids, idCount);
         } else {
             this.excludedImages = null;
+            this.excludedImageIds = null;
         }
+        this.exclusionFilter = null;
     }
 
+    /**
+     * Replaces the images set with {@link #setExcludedImages}, their ids included
+     */
     public void setExcludedImageFiles(ArrayList<File> excludedImages) {
         this.excludedImages = excludedImages;
+        this.excludedImageIds = null;
+        this.exclusionFilter = null;
+    }
+
+    public long[] getExcludedIds() {
+        return excludedIds;
+    }
+
+    public void setExcludedIds(long[] excludedIds) {
+        this.excludedIds = excludedIds;
+        this.exclusionFilter = null;
+    }
+
+    public ArrayList<String> getExcludedFolders() {
+        return excludedFolders;
+    }
+
+    public void setExcludedFolders(ArrayList<String> excludedFolders) {
+        this.excludedFolders = excludedFolders;
+        this.exclusionFilter = null;
+    }
+
+    public ExclusionFilter getExclusionFilter() {
+        if (exclusionFilter == null) {
+            exclusionFilter = ExclusionFilter.create(concat(excludedIds, excludedImageIds),
+                    excludedImages, excludedFolders);
+        }
+        return exclusionFilter;
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        if (first == null || first.length == 0) {
+            return second;
+        }
+        if (second == null || second.length == 0) {
+            return first;
+        }
+        long[] ids = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, ids, first.length, second.length);
+        return ids;
     }
 
     public boolean isFolderMode() {
@@ -180,6 +345,9 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
         if (excludedImages != null) {
             dest.writeList(this.excludedImages);
         }
+        dest.writeLongArray(this.excludedIds);
+        dest.writeLongArray(this.excludedImageIds);
+        dest.writeStringList(this.excludedFolders);
 
         dest.writeString(this.folderTitle);
         dest.writeString(this.imageTitle);
@@ -188,9 +356,20 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
         dest.writeInt(this.mode);
         dest.writeInt(this.limit);
         dest.writeInt(this.theme);
+        dest.writeInt(this.firstPageSize);
+        dest.writeInt(this.pageSize);
+        dest.writeLong(this.refreshQuietPeriod);
+        dest.writeLong(this.refreshMaxDelay);
+        dest.writeInt(this.preloadRows);
+        dest.writeInt(this.resizeMaxDimension);
+        dest.writeInt(this.resizeQuality);
+        dest.writeInt(this.resizeFormat == null ? -1 : this.resizeFormat.ordinal());
         dest.writeByte(this.folderMode ? (byte) 1 : (byte) 0);
         dest.writeByte(this.includeVideo ? (byte) 1 : (byte) 0);
         dest.writeByte(this.showCamera ? (byte) 1 : (byte) 0);
+        dest.writeByte(this.cacheIndex ? (byte) 1 : (byte) 0);
+        dest.writeByte(this.flatCells ? (byte) 1 : (byte) 0);
+        dest.writeByte(this.fastScroll ? (byte) 1 : (byte) 0);
         dest.writeSerializable(this.imageLoader);
     }
 
@@ -203,6 +382,9 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
             this.excludedImages = new ArrayList<>();
             in.readList(this.excludedImages, File.class.getClassLoader());
         }
+        this.excludedIds = in.createLongArray();
+        this.excludedImageIds = in.createLongArray();
+        this.excludedFolders = in.createStringArrayList();
 
         this.folderTitle = in.readString();
         this.imageTitle = in.readString();
@@ -211,9 +393,21 @@ public class ImagePickerConfig extends BaseConfig implements Parcelable {
         this.mode = in.readInt();
         this.limit = in.readInt();
         this.theme = in.readInt();
+        this.firstPageSize = in.readInt();
+        this.pageSize = in.readInt();
+        this.refreshQuietPeriod = in.readLong();
+        this.refreshMaxDelay = in.readLong();
+        this.preloadRows = in.readInt();
+        this.resizeMaxDimension = in.readInt();
+        this.resizeQuality = in.readInt();
+        int tmpResizeFormat = in.readInt();
+        this.resizeFormat = tmpResizeFormat == -1 ? null : Bitmap.CompressFormat.values()[tmpResizeFormat];
         this.folderMode = in.readByte() != 0;
         this.includeVideo = in.readByte() != 0;
         this.showCamera = in.readByte() != 0;
+        this.cacheIndex = in.readByte() != 0;
+        this.flatCells = in.readByte() != 0;
+        this.fastScroll = in.readByte() != 0;
         this.imageLoader = (ImageLoader) in.readSerializable();
     }
 
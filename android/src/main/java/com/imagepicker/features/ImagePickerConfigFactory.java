@@ -1,5 +1,7 @@
 package com.imagepicker.features;
 
+import android.graphics.Bitmap;
+
 import com.imagepicker.features.cameraonly.CameraOnlyConfig;
 import com.imagepicker.features.imageloader.DefaultImageLoader;
 
@@ -24,6 +26,14 @@ public class ImagePickerConfigFactory {
         config.setSavePath(ImagePickerSavePath.DEFAULT);
         config.setReturnMode(ReturnMode.NONE);
         config.setImageLoader(new DefaultImageLoader());
+        config.setFirstPageSize(IpCons.DEFAULT_FIRST_PAGE_SIZE);
+        config.setPageSize(IpCons.DEFAULT_PAGE_SIZE);
+        config.setRefreshQuietPeriod(IpCons.DEFAULT_REFRESH_QUIET_PERIOD);
+        config.setRefreshMaxDelay(IpCons.DEFAULT_REFRESH_MAX_DELAY);
+        config.setPreloadRows(IpCons.DEFAULT_PRELOAD_ROWS);
+        config.setResizeFormat(Bitmap.CompressFormat.JPEG);
+        config.setResizeQuality(IpCons.DEFAULT_RESIZE_QUALITY);
+        config.setFastScroll(true);
         return config;
     }
 }
@@ -3,6 +3,7 @@ package com.imagepicker.features;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.Bitmap;
 import android.os.Handler;
 import android.os.Looper;
 import android.widget.Toast;
@@ -11,21 +12,44 @@ import com.christian.christian_picker_image.R;
 import com.imagepicker.features.camera.DefaultCameraModule;
 import com.imagepicker.features.common.BaseConfig;
 import com.imagepicker.features.common.BasePresenter;
+import com.imagepicker.features.common.FolderLoaderListener;
 import com.imagepicker.features.common.ImageLoaderListener;
+import com.imagepicker.features.common.ImageSyncListener;
 import com.imagepicker.helper.ConfigUtils;
+import com.imagepicker.helper.ImageResizer;
 import com.imagepicker.model.Folder;
 import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaDelta;
+import com.imagepicker.model.MediaSnapshot;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.List;
 
 class ImagePickerPresenter extends BasePresenter<ImagePickerView> {
 
+    /* A prefetch completed this recently isn't synced again, in folder mode that would repeat the folder query */
+    private static final long PREFETCH_FRESH_AGE = 5 * 1000;
+
     private ImageFileLoader imageLoader;
     private DefaultCameraModule cameraModule;
     private Handler main = new Handler(Looper.getMainLooper());
 
+    /* Last complete result, the base of incremental refreshes */
+    private MediaSnapshot snapshot;
+
+    /* Folder whose images are shown in folder mode, null while the folder list is shown */
+    private Long openBucketId;
+
+    /* Set while the picked images are resized, done is ignored meanwhile */
+    private boolean isResizing;
+
+    /* Set while a full load runs, changes arriving meanwhile are synced after it instead of restarting it */
+    private boolean isLoading;
+    private boolean hasPendingChanges;
+
+    /* Waiting for a prefetch that is still running, detached again on abort */
+    private MediaPrefetcher.Callback prefetchCallback;
+
     ImagePickerPresenter(ImageFileLoader imageLoader) {
         this.imageLoader = imageLoader;
     }
@@ -44,28 +68,305 @@ class ImagePickerPresenter extends BasePresenter<ImagePickerView> {
 
     void abortLoad() {
         imageLoader.abortLoadImages();
+        if (prefetchCallback != null) {
+            MediaPrefetcher.getInstance().detach(prefetchCallback);
+            prefetchCallback = null;
+        }
+        /* Results posted before the abort are stale as well */
+        main.removeCallbacksAndMessages(null);
+    }
+
+    /**
+     * Load the images, or sync them with MediaStore when they are loaded already
+     * A full load in progress isn't restarted, the change is synced once the load finished
+     */
+    void requestRefresh(ImagePickerConfig config) {
+        if (isLoading) {
+            hasPendingChanges = true;
+            return;
+        }
+        abortLoad();
+        refreshImages(config);
+    }
+
+    /* Sync the changes that arrived during the load, the load itself didn't necessarily see them */
+    private void finishLoad(ImagePickerConfig config) {
+        isLoading = false;
+        if (hasPendingChanges) {
+            hasPendingChanges = false;
+            refreshImages(config);
+        }
     }
 
     void loadImages(ImagePickerConfig config) {
         if (!isViewAttached()) return;
 
-        boolean isFolder = config.isFolderMode();
+        isLoading = true;
+
+        if (config.isFolderMode()) {
+            runOnUiIfAvailable(() -> getView().showLoading(true));
+            if (!attachPrefetch(config)) {
+                loadFolders(config, false);
+            }
+            return;
+        }
+
+        imageLoader.setIndexCacheEnabled(config.isCacheIndex());
+        runOnUiIfAvailable(() -> getView().showLoading(true));
+        if (attachPrefetch(config)) {
+            return;
+        }
+        if (!config.isCacheIndex()) {
+            loadDeviceImages(config);
+            return;
+        }
+
+        /* Draw the persisted index right away, then verify it against MediaStore */
+        imageLoader.loadCachedImages(config.isIncludeVideo(), config.getExclusionFilter(),
+                new ImageLoaderListener() {
+            @Override
+            public void onImagePageLoaded(MediaSnapshot images, boolean isFirstPage) {
+            }
+
+            @Override
+            public void onImageLoaded(final MediaSnapshot images, final List<Folder> folders) {
+                runOnUiIfAvailable(() -> {
+                    snapshot = images;
+                    showFetchResult(images, folders);
+                    isLoading = false;
+                    hasPendingChanges = false;
+                    refreshImages(config);
+                });
+            }
+
+            @Override
+            public void onFailed(Throwable throwable) {
+                runOnUiIfAvailable(() -> loadDeviceImages(config));
+            }
+        });
+    }
+
+    /**
+     * Take over a load started by {@link ImagePicker#prefetch(Context)}, then sync it unless it completed just now
+     */
+    private boolean attachPrefetch(ImagePickerConfig config) {
+        prefetchCallback = new MediaPrefetcher.Callback() {
+            @Override
+            public void onPrefetched(final MediaSnapshot images, final List<Folder> folders, final long age) {
+                prefetchCallback = null;
+                runOnUiIfAvailable(() -> {
+                    if (!config.isFolderMode()) {
+                        snapshot = images;
+                    }
+                    showFetchResult(images, folders);
+                    if (age < PREFETCH_FRESH_AGE) {
+                        finishLoad(config);
+                        return;
+                    }
+                    isLoading = false;
+                    hasPendingChanges = false;
+                    refreshImages(config);
+                });
+            }
+
+            @Override
+            public void onFailed(Throwable throwable) {
+                prefetchCallback = null;
+                runOnUiIfAvailable(() -> loadImages(config));
+            }
+        };
+        if (!MediaPrefetcher.getInstance().attach(config, prefetchCallback)) {
+            prefetchCallback = null;
+            return false;
+        }
+        return true;
+    }
+
+    private void loadDeviceImages(ImagePickerConfig config) {
         boolean includeVideo = config.isIncludeVideo();
-        ArrayList<File> excludedImages = config.getExcludedImages();
+        ExclusionFilter exclusions = config.getExclusionFilter();
 
         runOnUiIfAvailable(() -> getView().showLoading(true));
 
-        imageLoader.loadDeviceImages(isFolder, includeVideo, excludedImages, new ImageLoaderListener() {
+        imageLoader.loadDeviceImages(false, includeVideo, exclusions,
+                config.getFirstPageSize(), config.getPageSize(), new ImageLoaderListener() {
+
+            /* Only touched from the loader thread */
+            private boolean isPaged;
+
+            @Override
+            public void onImagePageLoaded(final MediaSnapshot images, final boolean isFirstPage) {
+                isPaged = true;
+                runOnUiIfAvailable(() -> {
+                    if (isFirstPage) {
+                        getView().showFetchCompleted(images, null);
+                        getView().showLoading(false);
+                    } else {
+                        getView().showFetchPage(images);
+                    }
+                });
+            }
+
+            @Override
+            public void onImageLoaded(final MediaSnapshot images, final List<Folder> folders) {
+                if (isPaged) {
+                    /* Every image has been delivered through the pages already */
+                    runOnUiIfAvailable(() -> {
+                        snapshot = images;
+                        finishLoad(config);
+                    });
+                    return;
+                }
+                runOnUiIfAvailable(() -> {
+                    snapshot = images;
+                    showFetchResult(images, folders);
+                    finishLoad(config);
+                });
+            }
+
+            @Override
+            public void onFailed(final Throwable throwable) {
+                runOnUiIfAvailable(() -> {
+                    isLoading = false;
+                    getView().showError(throwable);
+                });
+            }
+        });
+    }
+
+    /**
+     * Load the folder list of folder mode, every folder carries only its count and cover
+     *
+     * @param isRefresh update the folders in place instead of showing the folder list
+     */
+    private void loadFolders(ImagePickerConfig config, final boolean isRefresh) {
+        imageLoader.loadFolders(config.isIncludeVideo(), config.getExclusionFilter(), new FolderLoaderListener() {
+            @Override
+            public void onFolderLoaded(final List<Folder> folders) {
+                runOnUiIfAvailable(() -> {
+                    if (!isRefresh) {
+                        showFetchResult(MediaSnapshot.EMPTY, folders);
+                        finishLoad(config);
+                        return;
+                    }
+                    getView().showFoldersUpdated(folders);
+                    if (folders.isEmpty()) {
+                        getView().showEmpty();
+                    } else {
+                        getView().showLoading(false);
+                    }
+                });
+            }
+
             @Override
-            public void onImageLoaded(final List<Image> images, final List<Folder> folders) {
+            public void onFailed(final Throwable throwable) {
                 runOnUiIfAvailable(() -> {
-                    getView().showFetchCompleted(images, folders);
+                    if (!isRefresh) {
+                        isLoading = false;
+                    }
+                    getView().showError(throwable);
+                });
+            }
+        });
+    }
+
+    /**
+     * Show the images of a folder, queried on first open
+     */
+    void openFolder(ImagePickerConfig config, final Folder folder) {
+        if (!isViewAttached()) return;
+
+        final long bucketId = folder.getBucketId();
+        openBucketId = bucketId;
+        if (folder.isLoaded()) {
+            snapshot = folder.getMedia();
+            getView().showFolderImages(snapshot);
+            return;
+        }
+
+        snapshot = null;
+        isLoading = true;
+        getView().showFolderImages(MediaSnapshot.EMPTY);
+        imageLoader.loadFolderImages(bucketId, config.isIncludeVideo(), config.getExclusionFilter(),
+                new ImageLoaderListener() {
+            @Override
+            public void onImagePageLoaded(MediaSnapshot images, boolean isFirstPage) {
+            }
 
-                    final boolean isEmpty = folders != null
-                            ? folders.isEmpty()
-                            : images.isEmpty();
+            @Override
+            public void onImageLoaded(final MediaSnapshot images, List<Folder> folders) {
+                runOnUiIfAvailable(() -> {
+                    /* The user may have gone back or opened another folder meanwhile */
+                    if (openBucketId == null || openBucketId != bucketId) {
+                        finishLoad(config);
+                        return;
+                    }
+                    folder.setMedia(images);
+                    snapshot = images;
+                    getView().showFolderImages(images);
+                    finishLoad(config);
+                });
+            }
 
-                    if (isEmpty) {
+            @Override
+            public void onFailed(final Throwable throwable) {
+                runOnUiIfAvailable(() -> {
+                    isLoading = false;
+                    getView().showError(throwable);
+                });
+            }
+        });
+    }
+
+    void closeFolder() {
+        openBucketId = null;
+        snapshot = null;
+    }
+
+    /**
+     * Apply MediaStore changes to the loaded images
+     * Falls back to a full load when nothing has been loaded completely yet
+     * In folder mode the folder list is queried again and only the opened folder is synced
+     */
+    void refreshImages(ImagePickerConfig config) {
+        if (!isViewAttached()) return;
+
+        if (config.isFolderMode()) {
+            loadFolders(config, true);
+            if (openBucketId != null && snapshot != null) {
+                syncImages(config, openBucketId);
+            }
+            return;
+        }
+
+        if (snapshot == null) {
+            loadImages(config);
+            return;
+        }
+        syncImages(config, null);
+    }
+
+    private void syncImages(ImagePickerConfig config, final Long bucketId) {
+        imageLoader.setIndexCacheEnabled(config.isCacheIndex());
+        imageLoader.syncDeviceImages(snapshot, config.isIncludeVideo(), config.getExclusionFilter(), bucketId,
+                new ImageSyncListener() {
+            @Override
+            public void onImageSynced(final MediaDelta delta) {
+                runOnUiIfAvailable(() -> {
+                    /* Drop the result of a folder that has been closed since */
+                    if (snapshot != delta.getPrevious()) {
+                        return;
+                    }
+                    snapshot = delta.getCurrent();
+                    if (delta.isEmpty()) {
+                        return;
+                    }
+                    getView().showFetchDelta(delta);
+
+                    if (bucketId != null) {
+                        return;
+                    }
+                    if (delta.getCurrent().isEmpty()) {
                         getView().showEmpty();
                     } else {
                         getView().showLoading(false);
@@ -80,7 +381,7 @@ class ImagePickerPresenter extends BasePresenter<ImagePickerView> {
         });
     }
 
-    void onDoneSelectImages(List<Image> selectedImages) {
+    void onDoneSelectImages(Context context, List<Image> selectedImages, BaseConfig config) {
         if (selectedImages != null && selectedImages.size() > 0) {
 
             /* Scan selected images which not existed */
@@ -92,7 +393,7 @@ class ImagePickerPresenter extends BasePresenter<ImagePickerView> {
                     i--;
                 }
             }
-            getView().finishPickImages(selectedImages);
+            finishPickImages(context, selectedImages, config);
         }
     }
 
@@ -109,17 +410,66 @@ class ImagePickerPresenter extends BasePresenter<ImagePickerView> {
     void finishCaptureImage(Context context, Intent data, final BaseConfig config) {
         getCameraModule().getImage(context, data, images -> {
             if (ConfigUtils.shouldReturn(config, true)) {
-                getView().finishPickImages(images);
+                finishPickImages(context, images, config);
             } else {
                 getView().showCapturedImage();
             }
         });
     }
 
+    /**
+     * Return the images, replaced by resized copies first when the config asks for it
+     */
+    private void finishPickImages(Context context, List<Image> images, BaseConfig config) {
+        final int maxDimension = config instanceof ImagePickerConfig
+                ? ((ImagePickerConfig) config).getResizeMaxDimension()
+                : 0;
+        if (maxDimension <= 0 || images == null || images.isEmpty()) {
+            getView().finishPickImages(images);
+            return;
+        }
+
+        final ImagePickerConfig pickerConfig = (ImagePickerConfig) config;
+        final Bitmap.CompressFormat format = pickerConfig.getResizeFormat() != null
+                ? pickerConfig.getResizeFormat()
+                : Bitmap.CompressFormat.JPEG;
+        final Context appContext = context.getApplicationContext();
+
+        /* The camera module reports from a binder thread */
+        runOnUiIfAvailable(() -> {
+            if (isResizing) {
+                return;
+            }
+            isResizing = true;
+            getView().showLoading(true);
+            new ImageResizer(appContext, maxDimension, format, pickerConfig.getResizeQuality())
+                    .resize(images, resized -> {
+                        isResizing = false;
+                        if (isViewAttached()) {
+                            getView().finishPickImages(resized);
+                        }
+                    });
+        });
+    }
+
     void abortCaptureImage() {
         getCameraModule().removeImage();
     }
 
+    private void showFetchResult(MediaSnapshot images, List<Folder> folders) {
+        getView().showFetchCompleted(images, folders);
+
+        final boolean isEmpty = folders != null
+                ? folders.isEmpty()
+                : images.isEmpty();
+
+        if (isEmpty) {
+            getView().showEmpty();
+        } else {
+            getView().showLoading(false);
+        }
+    }
+
     private void runOnUiIfAvailable(Runnable runnable) {
         main.post(() -> {
             if (isViewAttached()) {
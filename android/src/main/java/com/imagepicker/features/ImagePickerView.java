@@ -3,12 +3,18 @@ package com.imagepicker.features;
 import com.imagepicker.features.common.MvpView;
 import com.imagepicker.model.Folder;
 import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaDelta;
+import com.imagepicker.model.MediaSnapshot;
 
 import java.util.List;
 
 public interface ImagePickerView extends MvpView {
     void showLoading(boolean isLoading);
-    void showFetchCompleted(List<Image> images, List<Folder> folders);
+    void showFetchCompleted(MediaSnapshot images, List<Folder> folders);
+    void showFetchPage(MediaSnapshot images);
+    void showFetchDelta(MediaDelta delta);
+    void showFoldersUpdated(List<Folder> folders);
+    void showFolderImages(MediaSnapshot images);
     void showError(Throwable throwable);
     void showEmpty();
     void showCapturedImage();
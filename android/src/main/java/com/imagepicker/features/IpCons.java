@@ -8,5 +8,16 @@ public class IpCons {
 
     public static final int RC_IMAGE_PICKER = 0x229;
 
+    public static final int DEFAULT_FIRST_PAGE_SIZE = 120;
+    public static final int DEFAULT_PAGE_SIZE = 1000;
+
+    public static final long DEFAULT_REFRESH_QUIET_PERIOD = 300;
+    public static final long DEFAULT_REFRESH_MAX_DELAY = 2000;
+
+    public static final int DEFAULT_PRELOAD_ROWS = 4;
+
+    public static final int DEFAULT_RESIZE_QUALITY = 90;
+    public static final int DEFAULT_THUMBNAIL_QUALITY = 80;
+
     static final String EXTRA_SELECTED_IMAGES = "selectedImages";
 }
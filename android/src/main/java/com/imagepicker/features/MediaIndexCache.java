@@ -0,0 +1,83 @@
+package com.imagepicker.features;
+
+import android.content.Context;
+
+import androidx.annotation.Nullable;
+
+import com.imagepicker.helper.IpLogger;
+import com.imagepicker.model.MediaSnapshot;
+import com.imagepicker.model.MediaSnapshotCodec;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Last loaded snapshot kept in the app cache dir, so the grid can be drawn before MediaStore is queried
+ * The file is memory-mapped on read and replaced atomically on write.
+ * A file that can't be decoded is deleted and the caller falls back to a full load.
+ */
+class MediaIndexCache {
+
+    private static final String FILE_NAME = "ef_media_index.bin";
+
+    private final File file;
+    private final IpLogger logger = IpLogger.getInstance();
+
+    MediaIndexCache(Context context) {
+        this.file = new File(context.getCacheDir(), FILE_NAME);
+    }
+
+    /**
+     * Identify the query options a snapshot was built with, a snapshot is only reused for the same options
+     */
+    static long createKey(boolean includeVideo, ExclusionFilter exclusions) {
+        return (exclusions.getKey() << 1) | (includeVideo ? 1 : 0);
+    }
+
+    @Nullable
+    MediaSnapshot read(long key) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileInputStream input = new FileInputStream(file);
+             FileChannel channel = input.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return MediaSnapshotCodec.decode(buffer, key);
+        } catch (IOException e) {
+            logger.w("Discarding media index: " + e.getMessage());
+            delete();
+            return null;
+        }
+    }
+
+    void write(MediaSnapshot snapshot, long key) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp);
+             FileChannel channel = output.getChannel()) {
+            ByteBuffer buffer = MediaSnapshotCodec.encode(snapshot, key);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            logger.w("Failed to write media index: " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            logger.w("Failed to replace media index");
+            temp.delete();
+        }
+    }
+
+    void delete() {
+        if (file.exists() && !file.delete()) {
+            logger.w("Failed to delete media index");
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.imagepicker.features;
+
+import android.Manifest;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import androidx.core.app.ActivityCompat;
+
+import com.imagepicker.features.common.FolderLoaderListener;
+import com.imagepicker.features.common.ImageLoaderListener;
+import com.imagepicker.helper.IpLogger;
+import com.imagepicker.model.Folder;
+import com.imagepicker.model.MediaSnapshot;
+
+import java.util.List;
+
+/**
+ * Media query started ahead of {@link ImagePickerActivity}, so the grid doesn't wait for MediaStore on launch
+ * The result is handed to the first picker opened with the same query options, or dropped after {@link #TTL}.
+ * Every method runs on the main thread.
+ */
+class MediaPrefetcher {
+
+    private static final long TTL = 60 * 1000;
+
+    interface Callback {
+        /**
+         * @param age milliseconds since the query completed
+         */
+        void onPrefetched(MediaSnapshot images, List<Folder> folders, long age);
+
+        void onFailed(Throwable throwable);
+    }
+
+    private static MediaPrefetcher INSTANCE;
+
+    static MediaPrefetcher getInstance() {
+        if (INSTANCE == null) {
+            INSTANCE = new MediaPrefetcher();
+        }
+        return INSTANCE;
+    }
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final IpLogger logger = IpLogger.getInstance();
+
+    private ImageFileLoader loader;
+    private long key;
+
+    private boolean isDone;
+    private long completedAt;
+    private MediaSnapshot images;
+    private List<Folder> folders;
+    private Throwable error;
+    private Callback waiting;
+
+    private MediaPrefetcher() {
+    }
+
+    /**
+     * Start loading for the given options, a prefetch with the same options already in progress is kept
+     */
+    void prefetch(Context context, ImagePickerConfig config) {
+        int rc = ActivityCompat.checkSelfPermission(context, Manifest.permission.WRITE_EXTERNAL_STORAGE);
+        if (rc != PackageManager.PERMISSION_GRANTED) {
+            logger.d("Skipping prefetch, storage permission not granted");
+            return;
+        }
+
+        long key = createKey(config);
+        if (loader != null && this.key == key) {
+            return;
+        }
+        release();
+
+        this.key = key;
+        loader = new ImageFileLoader(context.getApplicationContext());
+        loader.setIndexCacheEnabled(config.isCacheIndex());
+
+        if (config.isFolderMode()) {
+            loader.loadFolders(config.isIncludeVideo(), config.getExclusionFilter(), new FolderLoaderListener() {
+                @Override
+                public void onFolderLoaded(List<Folder> folders) {
+                    main.post(() -> complete(MediaSnapshot.EMPTY, folders, null));
+                }
+
+                @Override
+                public void onFailed(Throwable throwable) {
+                    main.post(() -> complete(null, null, throwable));
+                }
+            });
+        } else {
+            loader.loadDeviceImages(false, config.isIncludeVideo(), config.getExclusionFilter(),
+                    new ImageLoaderListener() {
+                @Override
+                public void onImagePageLoaded(MediaSnapshot images, boolean isFirstPage) {
+                }
+
+                @Override
+                public void onImageLoaded(MediaSnapshot images, List<Folder> folders) {
+                    main.post(() -> complete(images, folders, null));
+                }
+
+                @Override
+                public void onFailed(Throwable throwable) {
+                    main.post(() -> complete(null, null, throwable));
+                }
+            });
+        }
+        main.postDelayed(this::expire, TTL);
+    }
+
+    /**
+     * Hand the prefetched result to a picker, now or once the query completes
+     *
+     * @return false when nothing was prefetched for these options, the caller has to load by itself
+     */
+    boolean attach(ImagePickerConfig config, Callback callback) {
+        if (loader == null || key != createKey(config)) {
+            return false;
+        }
+        if (!isDone) {
+            waiting = callback;
+            return true;
+        }
+        deliver(callback);
+        return true;
+    }
+
+    /**
+     * Forget a picker that went away before the query completed, the singleton mustn't keep it reachable
+     */
+    void detach(Callback callback) {
+        if (waiting == callback) {
+            release();
+        }
+    }
+
+    private void complete(MediaSnapshot images, List<Folder> folders, Throwable error) {
+        if (loader == null) {
+            return;
+        }
+        this.isDone = true;
+        this.completedAt = SystemClock.elapsedRealtime();
+        this.images = images;
+        this.folders = folders;
+        this.error = error;
+        if (waiting != null) {
+            deliver(waiting);
+        }
+    }
+
+    /* A result is only used once, later pickers load by themselves and sync from there */
+    private void deliver(Callback callback) {
+        if (error != null) {
+            callback.onFailed(error);
+        } else {
+            callback.onPrefetched(images, folders, SystemClock.elapsedRealtime() - completedAt);
+        }
+        release();
+    }
+
+    /* Nobody opened a picker in time, don't keep the library in memory */
+    private void expire() {
+        if (waiting == null) {
+            release();
+        }
+    }
+
+    private void release() {
+        main.removeCallbacksAndMessages(null);
+        if (loader != null) {
+            loader.abortLoadImages();
+            loader = null;
+        }
+        isDone = false;
+        images = null;
+        folders = null;
+        error = null;
+        waiting = null;
+    }
+
+    private static long createKey(ImagePickerConfig config) {
+        long key = MediaIndexCache.createKey(config.isIncludeVideo(), config.getExclusionFilter());
+        return (key << 1) | (config.isFolderMode() ? 1 : 0);
+    }
+}
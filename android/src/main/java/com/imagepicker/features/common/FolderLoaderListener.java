@@ -0,0 +1,11 @@
+package com.imagepicker.features.common;
+
+import com.imagepicker.model.Folder;
+
+import java.util.List;
+
+public interface FolderLoaderListener {
+    /* Folders only carry their count and cover, images are loaded when a folder is opened */
+    void onFolderLoaded(List<Folder> folders);
+    void onFailed(Throwable throwable);
+}
@@ -1,11 +1,13 @@
 package com.imagepicker.features.common;
 
 import com.imagepicker.model.Folder;
-import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaSnapshot;
 
 import java.util.List;
 
 public interface ImageLoaderListener {
-    void onImageLoaded(List<Image> images, List<Folder> folders);
+    /* Every page is a snapshot of all images loaded so far, newest first */
+    void onImagePageLoaded(MediaSnapshot images, boolean isFirstPage);
+    void onImageLoaded(MediaSnapshot images, List<Folder> folders);
     void onFailed(Throwable throwable);
 }
@@ -0,0 +1,8 @@
+package com.imagepicker.features.common;
+
+import com.imagepicker.model.MediaDelta;
+
+public interface ImageSyncListener {
+    void onImageSynced(MediaDelta delta);
+    void onFailed(Throwable throwable);
+}
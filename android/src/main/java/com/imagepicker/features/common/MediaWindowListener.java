@@ -0,0 +1,9 @@
+package com.imagepicker.features.common;
+
+import com.imagepicker.model.MediaSnapshot;
+
+public interface MediaWindowListener {
+    /* nextOffset is the row to start the following window at, or -1 after the last window */
+    void onWindowLoaded(MediaSnapshot window, int nextOffset);
+    void onFailed(Throwable throwable);
+}
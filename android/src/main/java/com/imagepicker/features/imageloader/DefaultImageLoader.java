@@ -1,27 +1,130 @@
 package com.imagepicker.features.imageloader;
 
+import android.content.ContentUris;
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.provider.MediaStore;
 import android.widget.ImageView;
 
+import androidx.annotation.Nullable;
+
 import com.bumptech.glide.Glide;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.load.DecodeFormat;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
 import com.bumptech.glide.request.RequestOptions;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.signature.MediaStoreSignature;
 import com.christian.christian_picker_image.R;
 
-public class DefaultImageLoader implements ImageLoader {
+public class DefaultImageLoader implements ThumbnailImageLoader {
+
+    private final boolean preferRgb565;
+
+    private transient RequestOptions[] thumbnailOptions;
+
+    public DefaultImageLoader() {
+        this(false);
+    }
+
+    /**
+     * @param preferRgb565 decode thumbnails without alpha, halving their memory
+     */
+    public DefaultImageLoader(boolean preferRgb565) {
+        this.preferRgb565 = preferRgb565;
+    }
 
     @Override
     public void loadImage(String path, ImageView imageView, ImageType imageType) {
         Glide.with(imageView.getContext())
                 .load(path)
-                .apply(new RequestOptions()
-                        .placeholder(imageType == ImageType.FOLDER
-                                ? R.drawable.ef_folder_placeholder
-                                : R.drawable.ef_image_placeholder)
-                        .error(imageType == ImageType.FOLDER
-                                ? R.drawable.ef_folder_placeholder
-                                : R.drawable.ef_image_placeholder)
-                )
+                .apply(createOptions(imageType))
                 .transition(DrawableTransitionOptions.withCrossFade())
                 .into(imageView);
     }
+
+    /**
+     * Loads the MediaStore content Uri at the cell size, which lets Glide serve the pre-generated
+     * MINI_KIND thumbnail instead of decoding the full file
+     * No crossfade, a fling binds too many cells for the animation to be visible
+     */
+    @Override
+    public void loadThumbnail(long id, String path, long dateModified, boolean isVideo, int size,
+                              ImageView imageView, ImageType imageType) {
+        if (id == 0) {
+            loadImage(path, imageView, imageType);
+            return;
+        }
+        createThumbnailRequest(imageView.getContext(), id, dateModified, isVideo, size, imageType)
+                .into(imageView);
+    }
+
+    @Nullable
+    @Override
+    public Object preloadThumbnail(Context context, long id, String path, long dateModified, boolean isVideo,
+                                   int size) {
+        if (id == 0) {
+            return null;
+        }
+        return createThumbnailRequest(context, id, dateModified, isVideo, size, ImageType.GALLERY)
+                .preload(size, size);
+    }
+
+    @Override
+    public void cancelPreload(Context context, Object request) {
+        Glide.with(context).clear((Target<?>) request);
+    }
+
+    @Override
+    public void pauseRequests(Context context) {
+        Glide.with(context).pauseRequests();
+    }
+
+    @Override
+    public void resumeRequests(Context context) {
+        Glide.with(context).resumeRequests();
+    }
+
+    /* Bound and preloaded thumbnails must share every option that is part of Glide's cache key
+     * The content Uri carries the id, the signature the modification time, the options the size and transformation */
+    private RequestBuilder<Drawable> createThumbnailRequest(Context context, long id, long dateModified,
+                                                            boolean isVideo, int size, ImageType imageType) {
+        return Glide.with(context)
+                .load(ContentUris.withAppendedId(isVideo
+                        ? MediaStore.Video.Media.EXTERNAL_CONTENT_URI
+                        : MediaStore.Images.Media.EXTERNAL_CONTENT_URI, id))
+                .apply(getThumbnailOptions(imageType, size))
+                .signature(new MediaStoreSignature("", dateModified, 0));
+    }
+
+    /* Options only change with the cell size, they are built once and shared by every bind */
+    private RequestOptions getThumbnailOptions(ImageType imageType, int size) {
+        if (thumbnailOptions == null) {
+            thumbnailOptions = new RequestOptions[ImageType.values().length];
+        }
+        RequestOptions options = thumbnailOptions[imageType.ordinal()];
+        if (options == null || options.getOverrideWidth() != size) {
+            /* Cells are center cropped, into(ImageView) would only add the crop to bound requests, not to preloads */
+            options = createOptions(imageType)
+                    .override(size)
+                    .centerCrop()
+                    .dontAnimate();
+            if (preferRgb565) {
+                options = options.format(DecodeFormat.PREFER_RGB_565);
+            }
+            options = options.lock();
+            thumbnailOptions[imageType.ordinal()] = options;
+        }
+        return options;
+    }
+
+    private static RequestOptions createOptions(ImageType imageType) {
+        return new RequestOptions()
+                .placeholder(imageType == ImageType.FOLDER
+                        ? R.drawable.ef_folder_placeholder
+                        : R.drawable.ef_image_placeholder)
+                .error(imageType == ImageType.FOLDER
+                        ? R.drawable.ef_folder_placeholder
+                        : R.drawable.ef_image_placeholder);
+    }
 }
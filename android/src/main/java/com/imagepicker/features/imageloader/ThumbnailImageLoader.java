@@ -0,0 +1,41 @@
+package com.imagepicker.features.imageloader;
+
+import android.content.Context;
+import android.widget.ImageView;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Image loader that can request a grid cell sized thumbnail of a MediaStore row
+ * The picker uses it instead of {@link #loadImage(String, ImageView, ImageType)} when the configured loader implements it
+ */
+public interface ThumbnailImageLoader extends ImageLoader {
+
+    /**
+     * @param id           MediaStore id of the row, 0 when unknown
+     * @param path         file path of the row, only given when the id is 0 so binding a known row doesn't build it
+     * @param dateModified last modification time of the row, together with the id it identifies the cached thumbnail
+     * @param size         width and height of the cell in pixels
+     */
+    void loadThumbnail(long id, String path, long dateModified, boolean isVideo, int size,
+                       ImageView imageView, ImageType imageType);
+
+    /**
+     * Decode a thumbnail into the memory cache before its cell is bound
+     * A later {@link #loadThumbnail} with the same arguments must be served from that cache
+     *
+     * @return request to pass to {@link #cancelPreload}, null when nothing was started
+     */
+    @Nullable
+    Object preloadThumbnail(Context context, long id, String path, long dateModified, boolean isVideo, int size);
+
+    void cancelPreload(Context context, Object request);
+
+    /**
+     * Hold back new requests, e.g. while the grid jumps through positions that won't stay on screen
+     * Requests of cells rebound meanwhile are dropped, only the ones still bound run on {@link #resumeRequests}
+     */
+    void pauseRequests(Context context);
+
+    void resumeRequests(Context context);
+}
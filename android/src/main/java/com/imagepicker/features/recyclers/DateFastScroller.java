@@ -0,0 +1,208 @@
+package com.imagepicker.features.recyclers;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.view.MotionEvent;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.christian.christian_picker_image.R;
+import com.imagepicker.adapter.ImagePickerAdapter;
+import com.imagepicker.model.MediaSections;
+
+/**
+ * Draggable thumb on the right edge of the image grid, labelled with the month of the images it points at
+ * Dragging jumps straight to the position instead of scrolling through everything in between, and image requests
+ * are held back until the thumb is released, so only the thumbnails of the window the drag ends on are loaded.
+ * The month comes from {@link MediaSections}, found by binary search for each move.
+ */
+class DateFastScroller extends RecyclerView.ItemDecoration implements RecyclerView.OnItemTouchListener {
+
+    /* Lists shorter than this many screens scroll fine without it */
+    private static final int MIN_SCREENS = 5;
+    private static final long HIDE_DELAY = 1500;
+
+    private final RecyclerView recyclerView;
+    private final ImagePickerAdapter adapter;
+
+    private final Paint thumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+    private final RectF rect = new RectF();
+
+    private final int thumbWidth;
+    private final int thumbHeight;
+    private final int touchWidth;
+    private final int padding;
+    private final int margin;
+
+    private boolean isVisible;
+    private boolean isDragging;
+    private float dragFraction;
+
+    private final Runnable hide = () -> {
+        isVisible = false;
+        DateFastScroller.this.recyclerView.invalidate();
+    };
+
+    DateFastScroller(RecyclerView recyclerView, ImagePickerAdapter adapter) {
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+
+        Context context = recyclerView.getContext();
+        Resources resources = context.getResources();
+        thumbPaint.setColor(ContextCompat.getColor(context, R.color.ef_primaryColor));
+        bubblePaint.setColor(ContextCompat.getColor(context, R.color.ef_primaryColor));
+        textPaint.setColor(ContextCompat.getColor(context, R.color.ef_primaryTextColor));
+        textPaint.setTextSize(resources.getDimension(R.dimen.ef_font_medium));
+        textPaint.getFontMetrics(fontMetrics);
+
+        padding = resources.getDimensionPixelSize(R.dimen.ef_spacing);
+        margin = resources.getDimensionPixelSize(R.dimen.ef_spacing_double);
+        thumbWidth = resources.getDimensionPixelSize(R.dimen.ef_spacing_half) * 2;
+        thumbHeight = margin * 3;
+        touchWidth = margin * 2;
+
+        recyclerView.addItemDecoration(this);
+        recyclerView.addOnItemTouchListener(this);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy != 0 && !isDragging && isScrollable()) {
+                    show();
+                }
+            }
+        });
+    }
+
+    private boolean isScrollable() {
+        return recyclerView.getAdapter() == adapter
+                && adapter.getItemCount() > MIN_SCREENS * Math.max(recyclerView.getChildCount(), 1);
+    }
+
+    private void show() {
+        isVisible = true;
+        recyclerView.removeCallbacks(hide);
+        recyclerView.postDelayed(hide, HIDE_DELAY);
+    }
+
+    /* --------------------------------------------------- */
+    /* > Drawing */
+    /* --------------------------------------------------- */
+
+    @Override
+    public void onDrawOver(@NonNull Canvas canvas, @NonNull RecyclerView parent, @NonNull RecyclerView.State state) {
+        if (!isVisible || parent.getAdapter() != adapter) {
+            return;
+        }
+
+        float top = getThumbTop();
+        float right = parent.getWidth();
+        rect.set(right - thumbWidth, top, right, top + thumbHeight);
+        canvas.drawRoundRect(rect, thumbWidth / 2f, thumbWidth / 2f, thumbPaint);
+
+        if (!isDragging) {
+            return;
+        }
+        MediaSections sections = adapter.getData().getSections();
+        if (sections.size() == 0) {
+            return;
+        }
+        String label = sections.getLabel(sections.getSectionForPosition(getTargetPosition()));
+        float textWidth = textPaint.measureText(label);
+        float textHeight = fontMetrics.descent - fontMetrics.ascent;
+        float bubbleRight = right - thumbWidth - margin;
+        float bubbleTop = Math.max(0, top + (thumbHeight - textHeight) / 2 - padding);
+        rect.set(bubbleRight - textWidth - 2 * padding, bubbleTop, bubbleRight, bubbleTop + textHeight + 2 * padding);
+        canvas.drawRoundRect(rect, padding, padding, bubblePaint);
+        canvas.drawText(label, rect.left + padding, rect.top + padding - fontMetrics.ascent, textPaint);
+    }
+
+    private float getThumbTop() {
+        float track = recyclerView.getHeight() - thumbHeight;
+        if (isDragging) {
+            return dragFraction * track;
+        }
+        int range = recyclerView.computeVerticalScrollRange() - recyclerView.computeVerticalScrollExtent();
+        if (range <= 0) {
+            return 0;
+        }
+        return Math.min(1f, recyclerView.computeVerticalScrollOffset() / (float) range) * track;
+    }
+
+    private int getTargetPosition() {
+        return Math.round(dragFraction * (adapter.getItemCount() - 1));
+    }
+
+    /* --------------------------------------------------- */
+    /* > Dragging */
+    /* --------------------------------------------------- */
+
+    @Override
+    public boolean onInterceptTouchEvent(@NonNull RecyclerView recyclerView, @NonNull MotionEvent e) {
+        if (e.getActionMasked() == MotionEvent.ACTION_DOWN && isOnThumb(e.getX(), e.getY())) {
+            startDrag();
+        }
+        return isDragging;
+    }
+
+    @Override
+    public void onTouchEvent(@NonNull RecyclerView recyclerView, @NonNull MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                seek(e.getY());
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                stopDrag();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    private boolean isOnThumb(float x, float y) {
+        if (!isVisible || recyclerView.getAdapter() != adapter || x < recyclerView.getWidth() - touchWidth) {
+            return false;
+        }
+        float top = getThumbTop();
+        return y >= top - margin && y <= top + thumbHeight + margin;
+    }
+
+    private void startDrag() {
+        isDragging = true;
+        dragFraction = getThumbTop() / Math.max(recyclerView.getHeight() - thumbHeight, 1);
+        recyclerView.removeCallbacks(hide);
+        recyclerView.stopScroll();
+        adapter.setRequestsPaused(true);
+        recyclerView.invalidate();
+    }
+
+    private void seek(float y) {
+        float track = Math.max(recyclerView.getHeight() - thumbHeight, 1);
+        dragFraction = Math.max(0f, Math.min(1f, (y - thumbHeight / 2f) / track));
+        ((LinearLayoutManager) recyclerView.getLayoutManager()).scrollToPositionWithOffset(getTargetPosition(), 0);
+        recyclerView.invalidate();
+    }
+
+    private void stopDrag() {
+        if (!isDragging) {
+            return;
+        }
+        isDragging = false;
+        adapter.setRequestsPaused(false);
+        show();
+        recyclerView.invalidate();
+    }
+}
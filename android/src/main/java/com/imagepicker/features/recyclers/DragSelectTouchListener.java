@@ -0,0 +1,133 @@
+package com.imagepicker.features.recyclers;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.christian.christian_picker_image.R;
+import com.imagepicker.adapter.ImagePickerAdapter;
+
+/**
+ * Extends a range selection started by a long press over the rows the finger moves across
+ * The grid scrolls by itself while the finger stays near its top or bottom edge.
+ */
+class DragSelectTouchListener implements RecyclerView.OnItemTouchListener {
+
+    /* Pixels scrolled per frame at the very edge, less further in */
+    private static final int MAX_SCROLL_SPEED = 48;
+
+    private final RecyclerView recyclerView;
+    private final ImagePickerAdapter adapter;
+    private final Runnable onLimitReached;
+    private final int edgeSize;
+
+    private boolean isLimitNotified;
+    private float lastX;
+    private float lastY;
+    private int scrollSpeed;
+
+    private final Runnable autoScroll = new Runnable() {
+        @Override
+        public void run() {
+            if (scrollSpeed == 0 || !adapter.isRangeSelecting()) {
+                return;
+            }
+            recyclerView.scrollBy(0, scrollSpeed);
+            select(lastX, lastY);
+            recyclerView.postOnAnimation(this);
+        }
+    };
+
+    /**
+     * @param onLimitReached called at most once per gesture when the range is cut short by the selection limit
+     */
+    DragSelectTouchListener(RecyclerView recyclerView, ImagePickerAdapter adapter, Runnable onLimitReached) {
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+        this.onLimitReached = onLimitReached;
+        this.edgeSize = recyclerView.getResources().getDimensionPixelSize(
+                R.dimen.ef_drag_select_edge);
+        recyclerView.addOnItemTouchListener(this);
+    }
+
+    /**
+     * Start selecting from the long pressed row, touch events are taken over until the finger is lifted
+     */
+    boolean start(int position, int limit) {
+        isLimitNotified = false;
+        if (!adapter.beginRangeSelection(position, limit)) {
+            notifyLimit();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean onInterceptTouchEvent(@NonNull RecyclerView recyclerView, @NonNull MotionEvent e) {
+        if (!adapter.isRangeSelecting()) {
+            return false;
+        }
+        /* The event that is intercepted doesn't reach onTouchEvent */
+        onTouchEvent(recyclerView, e);
+        return true;
+    }
+
+    @Override
+    public void onTouchEvent(@NonNull RecyclerView recyclerView, @NonNull MotionEvent e) {
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                lastX = e.getX();
+                lastY = e.getY();
+                select(lastX, lastY);
+                updateAutoScroll(lastY);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                scrollSpeed = 0;
+                recyclerView.removeCallbacks(autoScroll);
+                adapter.endRangeSelection();
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {
+    }
+
+    private void select(float x, float y) {
+        View child = recyclerView.findChildViewUnder(x, y);
+        if (child == null) {
+            return;
+        }
+        int position = recyclerView.getChildAdapterPosition(child);
+        if (position != RecyclerView.NO_POSITION && !adapter.updateRangeSelection(position)) {
+            notifyLimit();
+        }
+    }
+
+    private void updateAutoScroll(float y) {
+        int height = recyclerView.getHeight();
+        int speed = 0;
+        if (y < edgeSize) {
+            speed = -(int) (MAX_SCROLL_SPEED * (edgeSize - Math.max(y, 0)) / edgeSize);
+        } else if (y > height - edgeSize) {
+            speed = (int) (MAX_SCROLL_SPEED * (Math.min(y, height) - (height - edgeSize)) / edgeSize);
+        }
+
+        boolean isScrolling = scrollSpeed != 0;
+        scrollSpeed = speed;
+        if (speed != 0 && !isScrolling) {
+            recyclerView.postOnAnimation(autoScroll);
+        }
+    }
+
+    private void notifyLimit() {
+        if (!isLimitNotified) {
+            isLimitNotified = true;
+            onLimitReached.run();
+        }
+    }
+}
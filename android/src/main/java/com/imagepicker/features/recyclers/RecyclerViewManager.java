@@ -9,6 +9,7 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.christian.christian_picker_image.R;
+import com.imagepicker.adapter.BaseListAdapter;
 import com.imagepicker.adapter.FolderPickerAdapter;
 import com.imagepicker.adapter.ImagePickerAdapter;
 import com.imagepicker.features.ImagePickerConfig;
@@ -21,6 +22,8 @@ import com.imagepicker.listeners.OnImageClickListener;
 import com.imagepicker.listeners.OnImageSelectedListener;
 import com.imagepicker.model.Folder;
 import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaDelta;
+import com.imagepicker.model.MediaSnapshot;
 import com.imagepicker.view.GridSpacingItemDecoration;
 
 import java.util.ArrayList;
@@ -41,8 +44,17 @@ public class RecyclerViewManager {
 
     private ImagePickerAdapter imageAdapter;
     private FolderPickerAdapter folderAdapter;
+    private ThumbnailPreloader preloader;
+
+    /* Cells of both adapters stay pooled while the other one is shown, their view types don't overlap */
+    private final RecyclerView.RecycledViewPool viewPool = new RecyclerView.RecycledViewPool();
 
     private Parcelable foldersState;
+    private long currentBucketId;
+
+    /* Scroll position of the last folder left, restored when the same folder is opened again */
+    private Parcelable imagesState;
+    private long imagesStateBucketId;
 
     private int imageColumns;
     private int folderColumns;
@@ -51,6 +63,7 @@ public class RecyclerViewManager {
         this.recyclerView = recyclerView;
         this.config = config;
         this.context = recyclerView.getContext();
+        recyclerView.setRecycledViewPool(viewPool);
         changeOrientation(orientation);
     }
 
@@ -63,10 +76,27 @@ public class RecyclerViewManager {
 
         boolean shouldShowFolder = config.isFolderMode() && isDisplayingFolderView();
         int columns = shouldShowFolder ? folderColumns : imageColumns;
-        layoutManager = new GridLayoutManager(context, columns);
-        recyclerView.setLayoutManager(layoutManager);
-        recyclerView.setHasFixedSize(true);
+        if (layoutManager == null) {
+            layoutManager = new GridLayoutManager(context, columns);
+            recyclerView.setLayoutManager(layoutManager);
+            recyclerView.setHasFixedSize(true);
+        }
         setItemDecoration(columns);
+        updateThumbnailSizes();
+        updatePoolSizes();
+    }
+
+    /* Keep a screen of cells plus a couple of rows per view type, enough to refill the grid after switching lists */
+    private void updatePoolSizes() {
+        int width = context.getResources().getDisplayMetrics().widthPixels;
+        int height = context.getResources().getDisplayMetrics().heightPixels;
+
+        int imageCells = (height / Math.max(width / imageColumns, 1) + 2) * imageColumns;
+        viewPool.setMaxRecycledViews(BaseListAdapter.VIEW_TYPE_IMAGE, imageCells);
+        viewPool.setMaxRecycledViews(BaseListAdapter.VIEW_TYPE_IMAGE_FLAT, imageCells);
+
+        int folderCells = (height / Math.max(width / folderColumns, 1) + 2) * folderColumns;
+        viewPool.setMaxRecycledViews(BaseListAdapter.VIEW_TYPE_FOLDER, folderCells);
     }
 
     public void setupAdapters(OnImageClickListener onImageClickListener, OnFolderClickListener onFolderClickListener) {
@@ -78,10 +108,39 @@ public class RecyclerViewManager {
         /* Init folder and image adapter */
         final ImageLoader imageLoader = config.getImageLoader();
         imageAdapter = new ImagePickerAdapter(context, imageLoader, selectedImages, onImageClickListener);
+        imageAdapter.setFlatCells(config.isFlatCells());
         folderAdapter = new FolderPickerAdapter(context, imageLoader, bucket -> {
-            foldersState = recyclerView.getLayoutManager().onSaveInstanceState();
+            foldersState = layoutManager.onSaveInstanceState();
+            currentBucketId = bucket.getBucketId();
             onFolderClickListener.onFolderClick(bucket);
         });
+        updateThumbnailSizes();
+
+        if (config.getMode() == MODE_MULTIPLE) {
+            DragSelectTouchListener dragSelect = new DragSelectTouchListener(recyclerView, imageAdapter,
+                    () -> Toast.makeText(context, R.string.ef_msg_limit_images, Toast.LENGTH_SHORT).show());
+            imageAdapter.setImageLongClickListener(position -> dragSelect.start(position, config.getLimit()));
+        }
+        if (config.isFastScroll()) {
+            new DateFastScroller(recyclerView, imageAdapter);
+        }
+        if (config.getPreloadRows() > 0) {
+            preloader = new ThumbnailPreloader(imageAdapter, config.getPreloadRows());
+            recyclerView.addOnScrollListener(preloader);
+        }
+    }
+
+    /* Thumbnails are requested at the cell size, a bigger decode would be scaled down on every draw */
+    private void updateThumbnailSizes() {
+        if (imageAdapter == null) {
+            return;
+        }
+        if (preloader != null) {
+            preloader.reset();
+        }
+        int width = context.getResources().getDisplayMetrics().widthPixels;
+        imageAdapter.setThumbnailSize(width / imageColumns);
+        folderAdapter.setThumbnailSize(width / folderColumns);
     }
 
     private void setItemDecoration(int columns) {
@@ -120,7 +179,7 @@ public class RecyclerViewManager {
             return ConfigUtils.getImageTitle(context, config);
         }
 
-        final int imageSize = imageAdapter.getSelectedImages().size();
+        final int imageSize = imageAdapter.getSelectedCount();
         final boolean useDefaultTitle = !ImagePickerUtils.isStringEmpty(config.getImageTitle()) && imageSize == 0;
 
         if (useDefaultTitle) {
@@ -131,20 +190,76 @@ public class RecyclerViewManager {
                 : String.format(context.getString(R.string.ef_selected_with_limit), imageSize, config.getLimit());
     }
 
-    public void setImageAdapter(List<Image> images) {
+    public void setImageAdapter(MediaSnapshot images) {
+        if (preloader != null) {
+            preloader.reset();
+        }
+        /* A reload of the list already shown only updates the rows that changed */
+        if (recyclerView.getAdapter() == imageAdapter) {
+            imageAdapter.submitData(images);
+            return;
+        }
         imageAdapter.setData(images);
         setItemDecoration(imageColumns);
-        recyclerView.setAdapter(imageAdapter);
+        recyclerView.swapAdapter(imageAdapter, true);
+
+        if (imagesState != null && imagesStateBucketId == currentBucketId) {
+            layoutManager.onRestoreInstanceState(imagesState);
+        } else {
+            layoutManager.scrollToPosition(0);
+        }
+        imagesState = null;
+    }
+
+    public void appendImages(MediaSnapshot images) {
+        imageAdapter.appendData(images);
+    }
+
+    /**
+     * Apply an incremental refresh of the images without leaving the current screen
+     */
+    public void applyDelta(MediaDelta delta) {
+        imageAdapter.applyDelta(delta);
+    }
+
+    /**
+     * Replace the folder list after a refresh, going back to it when the opened folder no longer exists
+     *
+     * @return false when the opened folder has been closed
+     */
+    public boolean updateFolders(List<Folder> folders) {
+        if (isDisplayingFolderView()) {
+            setFolderAdapter(folders);
+            return true;
+        }
+
+        folderAdapter.setData(folders);
+        for (Folder folder : folders) {
+            if (folder.getBucketId() == currentBucketId) {
+                return true;
+            }
+        }
+        setFolderAdapter(null);
+        return false;
     }
 
     public void setFolderAdapter(List<Folder> folders) {
+        /* A refresh of the folders already shown is diffed by the adapter, the cells stay attached */
+        if (recyclerView.getAdapter() == folderAdapter) {
+            folderAdapter.setData(folders);
+            return;
+        }
+        if (recyclerView.getAdapter() == imageAdapter) {
+            imagesState = layoutManager.onSaveInstanceState();
+            imagesStateBucketId = currentBucketId;
+        }
+
         folderAdapter.setData(folders);
         setItemDecoration(folderColumns);
-        recyclerView.setAdapter(folderAdapter);
+        recyclerView.swapAdapter(folderAdapter, true);
 
         if (foldersState != null) {
-            layoutManager.setSpanCount(folderColumns);
-            recyclerView.getLayoutManager().onRestoreInstanceState(foldersState);
+            layoutManager.onRestoreInstanceState(foldersState);
         }
     }
 
@@ -170,12 +285,12 @@ public class RecyclerViewManager {
 
     public boolean selectImage(boolean isSelected) {
         if (config.getMode() == MODE_MULTIPLE) {
-            if (imageAdapter.getSelectedImages().size() >= config.getLimit() && !isSelected) {
+            if (imageAdapter.getSelectedCount() >= config.getLimit() && !isSelected) {
                 Toast.makeText(context, R.string.ef_msg_limit_images, Toast.LENGTH_SHORT).show();
                 return false;
             }
         } else if (config.getMode() == MODE_SINGLE) {
-            if (imageAdapter.getSelectedImages().size() > 0) {
+            if (imageAdapter.getSelectedCount() > 0) {
                 imageAdapter.removeAllSelectedSingleClick();
             }
         }
@@ -184,7 +299,7 @@ public class RecyclerViewManager {
 
     public boolean isShowDoneButton() {
         return !isDisplayingFolderView()
-                && !imageAdapter.getSelectedImages().isEmpty()
+                && imageAdapter.getSelectedCount() > 0
                 && (config.getReturnMode() != ReturnMode.ALL && config.getReturnMode() != ReturnMode.GALLERY_ONLY);
     }
 
@@ -0,0 +1,109 @@
+package com.imagepicker.features.recyclers;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.imagepicker.adapter.ImagePickerAdapter;
+
+import java.util.ArrayDeque;
+
+/**
+ * Decodes the thumbnails of the rows ahead of the scroll direction, so a fling doesn't show placeholders
+ * The lookahead grows with the scroll speed, up to twice the configured rows.
+ * Reversing the direction cancels every pending preload, they are behind the user from then on.
+ */
+class ThumbnailPreloader extends RecyclerView.OnScrollListener {
+
+    private final ImagePickerAdapter adapter;
+    private final int lookaheadRows;
+
+    /* Oldest first, the oldest ones are on screen by the time the queue is full */
+    private final ArrayDeque<Object> requests = new ArrayDeque<>();
+
+    private int direction;
+
+    /* Positions already requested, [preloadedStart, preloadedEnd) */
+    private int preloadedStart;
+    private int preloadedEnd;
+
+    ThumbnailPreloader(ImagePickerAdapter adapter, int lookaheadRows) {
+        this.adapter = adapter;
+        this.lookaheadRows = lookaheadRows;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || recyclerView.getAdapter() != adapter) {
+            return;
+        }
+        GridLayoutManager layoutManager = (GridLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        int newDirection = dy > 0 ? 1 : -1;
+        if (newDirection != direction) {
+            cancelAll();
+            direction = newDirection;
+            preloadedStart = first;
+            preloadedEnd = last + 1;
+        }
+
+        int spanCount = layoutManager.getSpanCount();
+        int count = getLookaheadRows(recyclerView, Math.abs(dy)) * spanCount;
+        int capacity = 2 * lookaheadRows * spanCount;
+
+        if (direction > 0) {
+            int end = Math.min(last + 1 + count, adapter.getItemCount());
+            for (int position = Math.max(preloadedEnd, last + 1); position < end; position++) {
+                enqueue(adapter.preload(position), capacity);
+            }
+            preloadedEnd = Math.max(preloadedEnd, end);
+        } else {
+            int start = Math.max(first - count, 0);
+            for (int position = Math.min(preloadedStart, first) - 1; position >= start; position--) {
+                enqueue(adapter.preload(position), capacity);
+            }
+            preloadedStart = Math.min(preloadedStart, start);
+        }
+    }
+
+    /* One extra lookahead row per row scrolled in a frame, capped at twice the configured rows */
+    private int getLookaheadRows(RecyclerView recyclerView, int distance) {
+        View child = recyclerView.getChildAt(0);
+        int rowHeight = child == null ? 0 : child.getHeight();
+        if (rowHeight == 0) {
+            return lookaheadRows;
+        }
+        return lookaheadRows + Math.min(lookaheadRows, distance / rowHeight);
+    }
+
+    private void enqueue(Object request, int capacity) {
+        if (request == null) {
+            return;
+        }
+        requests.addLast(request);
+        while (requests.size() > capacity) {
+            adapter.cancelPreload(requests.pollFirst());
+        }
+    }
+
+    /**
+     * Drop every pending preload, the positions no longer match after the data is replaced
+     */
+    void reset() {
+        cancelAll();
+        direction = 0;
+    }
+
+    private void cancelAll() {
+        while (!requests.isEmpty()) {
+            adapter.cancelPreload(requests.pollFirst());
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.imagepicker.helper;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Collapse a burst of change notifications into a single action
+ * The action runs once no change arrived for {@code quietPeriodMillis},
+ * but never later than {@code maxDelayMillis} after the first change of the burst.
+ */
+public class ChangeCoalescer {
+
+    private final Handler handler;
+    private final Runnable action;
+    private final long quietPeriodMillis;
+    private final long maxDelayMillis;
+
+    private long burstStart = -1;
+
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            burstStart = -1;
+            action.run();
+        }
+    };
+
+    public ChangeCoalescer(Handler handler, long quietPeriodMillis, long maxDelayMillis, Runnable action) {
+        this.handler = handler;
+        this.action = action;
+        this.quietPeriodMillis = quietPeriodMillis;
+        this.maxDelayMillis = Math.max(maxDelayMillis, quietPeriodMillis);
+    }
+
+    /**
+     * Must be called on the handler's thread
+     */
+    public void onChange() {
+        long now = SystemClock.uptimeMillis();
+        if (burstStart < 0) {
+            burstStart = now;
+        }
+        long deadline = burstStart + maxDelayMillis;
+
+        handler.removeCallbacks(flush);
+        handler.postAtTime(flush, Math.min(now + quietPeriodMillis, deadline));
+    }
+
+    public void cancel() {
+        handler.removeCallbacks(flush);
+        burstStart = -1;
+    }
+}
@@ -4,6 +4,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.graphics.Bitmap;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
 import android.net.Uri;
 import android.os.Environment;
 
@@ -77,13 +80,120 @@ public class ImagePickerUtils {
                 Intent.FLAG_GRANT_WRITE_URI_PERMISSION | Intent.FLAG_GRANT_READ_URI_PERMISSION);
     }
 
+    /**
+     * 64 bit FNV-1a hash with the sign bit set, an adapter id that can't collide with a MediaStore id
+     */
+    public static long negativeHash(char[] chars, int start, int end) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ chars[i]) * 0x100000001b3L;
+        }
+        return hash | Long.MIN_VALUE;
+    }
+
+    /**
+     * Same as {@link #negativeHash(char[], int, int)} for a String
+     */
+    public static long negativeHash(String string) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, length = string.length(); i < length; i++) {
+            hash = (hash ^ string.charAt(i)) * 0x100000001b3L;
+        }
+        return hash | Long.MIN_VALUE;
+    }
+
     public static boolean isGifFormat(Image image) {
-        String extension = image.getPath().substring(image.getPath().lastIndexOf(".") + 1, image.getPath().length());
+        return isGifFormat(image.getPath());
+    }
+
+    public static boolean isGifFormat(String path) {
+        String extension = path.substring(path.lastIndexOf(".") + 1, path.length());
         return extension.equalsIgnoreCase("gif");
     }
 
     public static boolean isVideoFormat(Image image) {
-        String mimeType = URLConnection.guessContentTypeFromName(image.getPath());
+        return isVideoFormat(image.getPath());
+    }
+
+    public static boolean isVideoFormat(String path) {
+        String mimeType = URLConnection.guessContentTypeFromName(path);
         return mimeType != null && mimeType.startsWith("video");
     }
+
+    /**
+     * EXIF orientation of an image file, {@link ExifInterface#ORIENTATION_NORMAL} when it can't be read
+     */
+    public static int readOrientation(String path) {
+        try {
+            return new ExifInterface(path).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    /**
+     * Smallest power of two subsampling whose decoded image still covers {@code maxDimension} on its longest side
+     */
+    public static int computeSampleSize(int width, int height, int maxDimension) {
+        int sampleSize = 1;
+        int longest = Math.max(width, height);
+        while (longest / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Scale down to {@code maxDimension} and turn upright in one pass, so only one extra bitmap is allocated
+     *
+     * @return the bitmap itself when it's already small enough and upright
+     */
+    public static Bitmap transform(Bitmap bitmap, int orientation, int maxDimension) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        float ratio = Math.min(1f, maxDimension / (float) Math.max(width, height));
+
+        Matrix matrix = new Matrix();
+        matrix.setScale(ratio, ratio);
+        if (!postOrientation(matrix, orientation) && ratio == 1f) {
+            return bitmap;
+        }
+        return Bitmap.createBitmap(bitmap, 0, 0, width, height, matrix, true);
+    }
+
+    /**
+     * Append the rotation and flip that turn an image of the given EXIF orientation upright
+     *
+     * @return false when the image is already upright and the matrix was left as it was
+     */
+    public static boolean postOrientation(Matrix matrix, int orientation) {
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                return true;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                return true;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                return true;
+            case ExifInterface.ORIENTATION_TRANSPOSE:
+                matrix.postRotate(90);
+                matrix.postScale(-1, 1);
+                return true;
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                return true;
+            case ExifInterface.ORIENTATION_TRANSVERSE:
+                matrix.postRotate(-90);
+                matrix.postScale(-1, 1);
+                return true;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(-90);
+                return true;
+            default:
+                return false;
+        }
+    }
 }
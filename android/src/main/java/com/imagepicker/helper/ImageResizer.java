@@ -0,0 +1,214 @@
+package com.imagepicker.helper;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.Nullable;
+
+import com.imagepicker.model.Image;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downscaled, upright copies of picked images written to the app cache dir, returned in place of the originals
+ * Images are decoded with the largest inSampleSize that still covers the max dimension. Only as many images
+ * are decoded at once as fit in a quarter of the heap, so peak memory doesn't grow with the selection.
+ * Videos, GIFs and images already small and upright in the requested format are returned as they are.
+ */
+public class ImageResizer {
+
+    public interface Callback {
+        /**
+         * @param images in the order of the input, the original image for a file that couldn't be processed
+         */
+        void onResized(List<Image> images);
+    }
+
+    private static final String DIRECTORY = "ef_resized";
+
+    /* Copies outlive the picker so the caller can read them, older ones are deleted on the next run */
+    private static final long MAX_AGE = 24 * 60 * 60 * 1000;
+
+    private static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(POOL_SIZE);
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final IpLogger logger = IpLogger.getInstance();
+
+    private final File directory;
+    private final int maxDimension;
+    private final Bitmap.CompressFormat format;
+    private final int quality;
+
+    /**
+     * @param maxDimension longest side of the copies in pixels
+     * @param quality      0 to 100, ignored by lossless formats
+     */
+    public ImageResizer(Context context, int maxDimension, Bitmap.CompressFormat format, int quality) {
+        this.directory = new File(context.getCacheDir(), DIRECTORY);
+        this.maxDimension = maxDimension;
+        this.format = format;
+        this.quality = quality;
+    }
+
+    public void resize(final List<Image> images, final Callback callback) {
+        if (images.isEmpty()) {
+            main.post(() -> callback.onResized(new ArrayList<>()));
+            return;
+        }
+
+        final Image[] results = new Image[images.size()];
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger remaining = new AtomicInteger(images.size());
+
+        /* Workers pull the next image when done, instead of queueing one task per image */
+        final Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < results.length) {
+                results[index] = resize(images.get(index));
+                if (remaining.decrementAndGet() == 0) {
+                    main.post(() -> callback.onResized(new ArrayList<>(Arrays.asList(results))));
+                }
+            }
+        };
+
+        final int workers = Math.min(getParallelism(), images.size());
+        EXECUTOR.execute(() -> {
+            prepareDirectory();
+            for (int i = 1; i < workers; i++) {
+                EXECUTOR.execute(worker);
+            }
+            worker.run();
+        });
+    }
+
+    /* A decoded image stays below twice the max dimension per side, plus the scaled copy */
+    private int getParallelism() {
+        long bytesPerImage = 20L * maxDimension * maxDimension;
+        long budget = Runtime.getRuntime().maxMemory() / 4;
+        return (int) Math.max(1, Math.min(POOL_SIZE, budget / bytesPerImage));
+    }
+
+    private void prepareDirectory() {
+        if (!directory.exists() && !directory.mkdirs()) {
+            logger.w("Failed to create " + directory);
+            return;
+        }
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long expiry = System.currentTimeMillis() - MAX_AGE;
+        for (File file : files) {
+            if (file.lastModified() < expiry) {
+                file.delete();
+            }
+        }
+    }
+
+    private Image resize(Image image) {
+        String path = image.getPath();
+        if (ImagePickerUtils.isVideoFormat(path) || ImagePickerUtils.isGifFormat(path)) {
+            return image;
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            logger.w("Failed to decode " + path);
+            return image;
+        }
+
+        int orientation = ImagePickerUtils.readOrientation(path);
+        int longest = Math.max(options.outWidth, options.outHeight);
+        if (longest <= maxDimension
+                && orientation == ExifInterface.ORIENTATION_NORMAL
+                && format == getFormat(options.outMimeType)) {
+            return image;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = ImagePickerUtils.computeSampleSize(options.outWidth, options.outHeight, maxDimension);
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null) {
+            logger.w("Failed to decode " + path);
+            return image;
+        }
+
+        Bitmap upright = ImagePickerUtils.transform(bitmap, orientation, maxDimension);
+        if (upright != bitmap) {
+            bitmap.recycle();
+        }
+
+        File output = createOutputFile(image);
+        boolean isWritten = write(upright, output);
+        upright.recycle();
+        if (!isWritten) {
+            return image;
+        }
+        return new Image(image.getId(), output.getName(), output.getPath());
+    }
+
+    /* Named after the original, the path hash keeps files of the same name in different folders apart */
+    private File createOutputFile(Image image) {
+        String name = ImagePickerUtils.getNameFromFilePath(image.getPath());
+        int dot = name.lastIndexOf('.');
+        if (dot > 0) {
+            name = name.substring(0, dot);
+        }
+        return new File(directory, name + "_" + Integer.toHexString(image.getPath().hashCode())
+                + "_" + maxDimension + getExtension());
+    }
+
+    private boolean write(Bitmap bitmap, File file) {
+        try (OutputStream output = new BufferedOutputStream(new FileOutputStream(file))) {
+            if (bitmap.compress(format, quality, output)) {
+                return true;
+            }
+        } catch (IOException e) {
+            logger.w("Failed to write " + file + ": " + e.getMessage());
+        }
+        file.delete();
+        return false;
+    }
+
+    private String getExtension() {
+        switch (format) {
+            case PNG:
+                return ".png";
+            case WEBP:
+                return ".webp";
+            default:
+                return ".jpg";
+        }
+    }
+
+    @Nullable
+    private static Bitmap.CompressFormat getFormat(@Nullable String mimeType) {
+        if ("image/jpeg".equals(mimeType)) {
+            return Bitmap.CompressFormat.JPEG;
+        }
+        if ("image/png".equals(mimeType)) {
+            return Bitmap.CompressFormat.PNG;
+        }
+        if ("image/webp".equals(mimeType)) {
+            return Bitmap.CompressFormat.WEBP;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,140 @@
+package com.imagepicker.helper;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ExifInterface;
+import android.media.ThumbnailUtils;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.MediaStore;
+
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scaled down JPEG/WebP copies of picked images, small enough to be sent over a platform channel
+ * Images are encoded in parallel on a pool sized to the CPU count, results are delivered on the main thread.
+ */
+public class ThumbnailEncoder {
+
+    public interface Callback {
+        /**
+         * @param thumbnails encoded bytes in the order of the paths, null for a file that couldn't be decoded
+         */
+        void onEncoded(byte[][] thumbnails);
+    }
+
+    public interface ItemCallback {
+        /**
+         * Called for every image as soon as it's encoded, in completion order
+         *
+         * @param thumbnail null when the file couldn't be decoded
+         */
+        void onItemEncoded(int index, @Nullable byte[] thumbnail);
+
+        /**
+         * Called once after the last item
+         */
+        void onComplete();
+    }
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final IpLogger logger = IpLogger.getInstance();
+
+    private final int size;
+    private final Bitmap.CompressFormat format;
+    private final int quality;
+
+    /**
+     * @param size    longest side of the thumbnails in pixels
+     * @param quality 0 to 100, ignored by lossless formats
+     */
+    public ThumbnailEncoder(int size, Bitmap.CompressFormat format, int quality) {
+        this.size = size;
+        this.format = format;
+        this.quality = quality;
+    }
+
+    public void encode(final List<String> paths, final Callback callback) {
+        final byte[][] thumbnails = new byte[paths.size()][];
+        encodeEach(paths, new ItemCallback() {
+            @Override
+            public void onItemEncoded(int index, @Nullable byte[] thumbnail) {
+                thumbnails[index] = thumbnail;
+            }
+
+            @Override
+            public void onComplete() {
+                callback.onEncoded(thumbnails);
+            }
+        });
+    }
+
+    public void encodeEach(final List<String> paths, final ItemCallback callback) {
+        if (paths.isEmpty()) {
+            main.post(callback::onComplete);
+            return;
+        }
+
+        /* Counted down on the main thread, after the item was delivered */
+        final AtomicInteger remaining = new AtomicInteger(paths.size());
+        for (int i = 0; i < paths.size(); i++) {
+            final int index = i;
+            EXECUTOR.execute(() -> {
+                final byte[] thumbnail = encode(paths.get(index));
+                main.post(() -> {
+                    callback.onItemEncoded(index, thumbnail);
+                    if (remaining.decrementAndGet() == 0) {
+                        callback.onComplete();
+                    }
+                });
+            });
+        }
+    }
+
+    @Nullable
+    private byte[] encode(String path) {
+        boolean isVideo = ImagePickerUtils.isVideoFormat(path);
+        Bitmap bitmap = isVideo
+                ? ThumbnailUtils.createVideoThumbnail(path, MediaStore.Images.Thumbnails.MINI_KIND)
+                : decode(path);
+        if (bitmap == null) {
+            logger.w("Failed to decode thumbnail of " + path);
+            return null;
+        }
+
+        /* Video frames come out upright, images are rotated as their EXIF says */
+        int orientation = isVideo ? ExifInterface.ORIENTATION_NORMAL : ImagePickerUtils.readOrientation(path);
+        Bitmap scaled = ImagePickerUtils.transform(bitmap, orientation, size);
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        scaled.compress(format, quality, output);
+        scaled.recycle();
+        return output.toByteArray();
+    }
+
+    /* Decode at the smallest power of two subsampling that still covers the size */
+    @Nullable
+    private Bitmap decode(String path) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = ImagePickerUtils.computeSampleSize(options.outWidth, options.outHeight, size);
+        return BitmapFactory.decodeFile(path, options);
+    }
+}
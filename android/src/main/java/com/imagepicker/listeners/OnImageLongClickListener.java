@@ -0,0 +1,5 @@
+package com.imagepicker.listeners;
+
+public interface OnImageLongClickListener {
+    boolean onImageLongClick(int position);
+}
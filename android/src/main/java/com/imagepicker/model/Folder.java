@@ -9,12 +9,45 @@ public class Folder {
 
     private String folderName;
     private ArrayList<Image> images;
+    private MediaSnapshot media;
+
+    /* Set when the folder comes from an aggregated query and its images are loaded on open */
+    private long bucketId;
+    private int count = -1;
+    private long coverId;
+    private String coverPath;
+    private byte coverType;
+    private long coverDateModified;
 
     public Folder(String bucket) {
         folderName = bucket;
         images = new ArrayList<>();
     }
 
+    public Folder(String bucket, MediaSnapshot media) {
+        folderName = bucket;
+        this.media = media;
+    }
+
+    /**
+     * @param coverType         one of the MediaSnapshot type codes, resolved from the MIME type by the query
+     * @param coverDateModified DATE_MODIFIED of the cover, part of its thumbnail cache key
+     */
+    public Folder(long bucketId, String bucket, int count, long coverId, String coverPath, byte coverType,
+                  long coverDateModified) {
+        this.bucketId = bucketId;
+        this.folderName = bucket;
+        this.count = count;
+        this.coverId = coverId;
+        this.coverPath = coverPath;
+        this.coverType = coverType;
+        this.coverDateModified = coverDateModified;
+    }
+
+    public long getBucketId() {
+        return bucketId;
+    }
+
     public String getFolderName() {
         return folderName;
     }
@@ -23,11 +56,76 @@ public class Folder {
         this.folderName = folderName;
     }
 
+    /**
+     * Images are materialized from the snapshot on first access
+     * Prefer {@link #getMedia()} when only binding rows
+     */
     public ArrayList<Image> getImages() {
+        if (images == null) {
+            images = getMedia().toImages();
+        }
         return images;
     }
 
     public void setImages(ArrayList<Image> images) {
         this.images = images;
+        this.media = null;
+    }
+
+    /**
+     * False for a folder of an aggregated query until its images are set with {@link #setMedia(MediaSnapshot)}
+     */
+    public boolean isLoaded() {
+        return media != null || images != null;
+    }
+
+    public MediaSnapshot getMedia() {
+        if (media == null) {
+            media = images == null
+                    ? MediaSnapshot.EMPTY
+                    : MediaSnapshot.fromImages(images);
+        }
+        return media;
+    }
+
+    public void setMedia(MediaSnapshot media) {
+        this.media = media;
+        this.images = null;
+    }
+
+    public int getCount() {
+        return isLoaded() ? getMedia().size() : count;
+    }
+
+    public long getCoverId() {
+        if (isLoaded()) {
+            MediaSnapshot snapshot = getMedia();
+            return snapshot.isEmpty() ? 0 : snapshot.getId(0);
+        }
+        return coverId;
+    }
+
+    public String getCoverPath() {
+        if (isLoaded()) {
+            MediaSnapshot snapshot = getMedia();
+            return snapshot.isEmpty() ? null : snapshot.getPath(0);
+        }
+        return coverPath;
+    }
+
+    public byte getCoverType() {
+        if (isLoaded()) {
+            MediaSnapshot snapshot = getMedia();
+            return snapshot.isEmpty() ? MediaSnapshot.TYPE_IMAGE : snapshot.getType(0);
+        }
+        return coverType;
+    }
+
+    public long getCoverDateModified() {
+        if (isLoaded()) {
+            MediaSnapshot snapshot = getMedia();
+            return snapshot.isEmpty() ? 0 : snapshot.getDateModified(0);
+        }
+        return coverDateModified;
     }
 }
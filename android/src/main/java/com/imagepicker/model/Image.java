@@ -48,6 +48,21 @@ public class Image implements Parcelable {
         return image.getPath().equalsIgnoreCase(getPath());
     }
 
+    /**
+     * Consistent with {@link #equals(Object)}, every char is folded the way {@link String#equalsIgnoreCase} compares it
+     */
+    @Override
+    public int hashCode() {
+        if (path == null) {
+            return 0;
+        }
+        int hash = 0;
+        for (int i = 0, length = path.length(); i < length; i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(path.charAt(i)));
+        }
+        return hash;
+    }
+
     /* --------------------------------------------------- */
     /* > Parcelable */
     /* --------------------------------------------------- */
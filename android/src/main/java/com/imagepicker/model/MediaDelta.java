@@ -0,0 +1,149 @@
+package com.imagepicker.model;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import java.util.Arrays;
+
+/**
+ * Difference between two snapshots produced by an incremental sync
+ * Both snapshots keep the same order, so rows are matched by id in a single pass
+ * and the result can be dispatched as range notifications instead of a full rebind.
+ */
+public class MediaDelta {
+
+    private static final int OP_REMOVE = 0;
+    private static final int OP_INSERT = 1;
+    private static final int OP_CHANGE = 2;
+
+    private final MediaSnapshot previous;
+    private final MediaSnapshot current;
+
+    /* Sorted ids of rows that exist in both snapshots but were modified */
+    private final long[] changedIds;
+
+    public MediaDelta(MediaSnapshot previous, MediaSnapshot current, long[] changedIds) {
+        this.previous = previous;
+        this.current = current;
+        this.changedIds = changedIds;
+        Arrays.sort(this.changedIds);
+    }
+
+    /**
+     * Compare two loads of the same query, rows present in both are changed when their modification date differs
+     */
+    public static MediaDelta between(MediaSnapshot previous, MediaSnapshot current) {
+        long[] changedIds = new long[Math.min(previous.size(), current.size())];
+        int changedCount = 0;
+        for (int i = 0, size = current.size(); i < size; i++) {
+            int position = previous.indexOfId(current.getId(i));
+            if (position >= 0 && previous.getDateModified(position) != current.getDateModified(i)) {
+                changedIds[changedCount++] = current.getId(i);
+            }
+        }
+        return new MediaDelta(previous, current, Arrays.copyOf(changedIds, changedCount));
+    }
+
+    public MediaSnapshot getPrevious() {
+        return previous;
+    }
+
+    public MediaSnapshot getCurrent() {
+        return current;
+    }
+
+    /**
+     * Same change set applied to another pair of snapshots, e.g. the content of a single folder
+     */
+    public MediaDelta subset(MediaSnapshot previous, MediaSnapshot current) {
+        return new MediaDelta(previous, current, changedIds);
+    }
+
+    public boolean isEmpty() {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0, size = current.size(); i < size; i++) {
+            long id = current.getId(i);
+            if (previous.getId(i) != id || isChanged(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Dispatch the row level changes, merging consecutive rows into ranges
+     *
+     * @return false when a row moved between the snapshots, the caller has to fall back to a full refresh
+     */
+    public boolean dispatchUpdatesTo(ListUpdateCallback callback) {
+        int[] ops = new int[16];
+        int opCount = 0;
+
+        int oldPosition = 0;
+        int newPosition = 0;
+        final int oldSize = previous.size();
+        final int newSize = current.size();
+
+        while (oldPosition < oldSize || newPosition < newSize) {
+            int op;
+            int position = newPosition;
+            if (oldPosition < oldSize && newPosition < newSize
+                    && previous.getId(oldPosition) == current.getId(newPosition)) {
+                op = isChanged(current.getId(newPosition)) ? OP_CHANGE : -1;
+                oldPosition++;
+                newPosition++;
+            } else if (oldPosition < oldSize && !current.containsId(previous.getId(oldPosition))) {
+                op = OP_REMOVE;
+                oldPosition++;
+            } else if (newPosition < newSize && !previous.containsId(current.getId(newPosition))) {
+                op = OP_INSERT;
+                newPosition++;
+            } else {
+                return false;
+            }
+
+            if (op < 0) {
+                continue;
+            }
+
+            /* Extend the previous range when it's the same operation on the adjacent row */
+            if (opCount > 0 && ops[(opCount - 1) * 3] == op) {
+                int last = (opCount - 1) * 3;
+                int lastEnd = ops[last + 1] + (op == OP_REMOVE ? 0 : ops[last + 2]);
+                if (lastEnd == position) {
+                    ops[last + 2]++;
+                    continue;
+                }
+            }
+            if ((opCount + 1) * 3 > ops.length) {
+                ops = Arrays.copyOf(ops, ops.length * 2);
+            }
+            ops[opCount * 3] = op;
+            ops[opCount * 3 + 1] = position;
+            ops[opCount * 3 + 2] = 1;
+            opCount++;
+        }
+
+        for (int i = 0; i < opCount; i++) {
+            int position = ops[i * 3 + 1];
+            int count = ops[i * 3 + 2];
+            switch (ops[i * 3]) {
+                case OP_REMOVE:
+                    callback.onRemoved(position, count);
+                    break;
+                case OP_INSERT:
+                    callback.onInserted(position, count);
+                    break;
+                default:
+                    callback.onChanged(position, count, null);
+                    break;
+            }
+        }
+        return true;
+    }
+
+    private boolean isChanged(long id) {
+        return Arrays.binarySearch(changedIds, id) >= 0;
+    }
+}
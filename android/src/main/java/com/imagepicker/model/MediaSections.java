@@ -0,0 +1,93 @@
+package com.imagepicker.model;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Locale;
+
+/**
+ * Month sections of a {@link MediaSnapshot}, as first position and month of every section
+ * Sections are keyed by the time rows were added, the order the rows are sorted in, so every section is one
+ * contiguous run of rows. Keying by capture time would let one old photo relabel every row after it.
+ * <p>
+ * Finding the section of a position is a binary search over the section starts.
+ */
+public class MediaSections {
+
+    private final int[] starts;
+    private final int[] months;
+    private final int count;
+
+    /* Formatted on first use, only read from the main thread */
+    private final String[] labels;
+
+    private MediaSections(int[] starts, int[] months, int count) {
+        this.starts = starts;
+        this.months = months;
+        this.count = count;
+        this.labels = new String[count];
+    }
+
+    static MediaSections of(MediaSnapshot snapshot) {
+        int[] starts = new int[16];
+        int[] months = new int[16];
+        int count = 0;
+
+        Calendar calendar = Calendar.getInstance();
+        long monthStart = Long.MAX_VALUE;
+        for (int i = 0; i < snapshot.size(); i++) {
+            long date = snapshot.getDateAdded(i) * 1000;
+            if (date >= monthStart) {
+                continue;
+            }
+
+            calendar.setTimeInMillis(date);
+            calendar.set(Calendar.DAY_OF_MONTH, 1);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            monthStart = calendar.getTimeInMillis();
+
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                months = Arrays.copyOf(months, count * 2);
+            }
+            starts[count] = i;
+            months[count] = calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+            count++;
+        }
+        return new MediaSections(starts, months, count);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Section the position falls in, in O(log n)
+     */
+    public int getSectionForPosition(int position) {
+        int index = Arrays.binarySearch(starts, 0, count, position);
+        return index >= 0 ? index : Math.max(-index - 2, 0);
+    }
+
+    public int getPositionForSection(int section) {
+        return starts[section];
+    }
+
+    /**
+     * Month and year of the section, e.g. "March 2019"
+     */
+    public String getLabel(int section) {
+        String label = labels[section];
+        if (label == null) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(months[section] / 12, months[section] % 12, 1);
+            label = new SimpleDateFormat("MMMM yyyy", Locale.getDefault()).format(calendar.getTime());
+            labels[section] = label;
+        }
+        return label;
+    }
+}
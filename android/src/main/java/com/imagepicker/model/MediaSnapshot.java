@@ -0,0 +1,584 @@
+package com.imagepicker.model;
+
+import com.imagepicker.helper.ImagePickerUtils;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column oriented store of the device media
+ * Every row lives in parallel primitive arrays, folder names are interned and paths are packed in one char buffer,
+ * so a library of any size costs a handful of arrays instead of an {@link Image} and two Strings per file.
+ * {@link Image} objects are only created with {@link #toImage(int)} for the rows that get selected or returned.
+ * <p>
+ * A snapshot never changes once built. Rows are appended by {@link Builder} and published with
+ * {@link Builder#build()} without copying, which lets pages be handed to the UI while loading continues.
+ */
+public class MediaSnapshot {
+
+    public static final MediaSnapshot EMPTY = new Builder(0, 0).build();
+
+    /* Media type codes, resolved from the MIME type when the row is queried */
+    public static final byte TYPE_IMAGE = 0;
+    public static final byte TYPE_GIF = 1;
+    public static final byte TYPE_VIDEO = 2;
+
+    private final long[] ids;
+    private final long[] datesModified;
+    private final long[] datesAdded;
+    private final long[] datesTaken;
+    private final int[] folderIndexes;
+    private final byte[] types;
+    private final char[] pathChars;
+    private final int[] pathEnds;
+    private final String[] folderNames;
+
+    /* Row numbers of this view into the columns above, null when every row is visible */
+    private final int[] rows;
+    private final int count;
+
+    private final SyncPoint syncPoint;
+
+    /* Built on first lookup, racing threads only build the same index twice */
+    private volatile IdIndex idIndex;
+    private volatile MediaSections sections;
+
+    private MediaSnapshot(long[] ids, long[] datesModified, long[] datesAdded, long[] datesTaken,
+                          int[] folderIndexes, byte[] types, char[] pathChars, int[] pathEnds, String[] folderNames,
+                          int[] rows, int count, SyncPoint syncPoint) {
+        this.ids = ids;
+        this.datesModified = datesModified;
+        this.datesAdded = datesAdded;
+        this.datesTaken = datesTaken;
+        this.folderIndexes = folderIndexes;
+        this.types = types;
+        this.pathChars = pathChars;
+        this.pathEnds = pathEnds;
+        this.folderNames = folderNames;
+        this.rows = rows;
+        this.count = count;
+        this.syncPoint = syncPoint;
+    }
+
+    static MediaSnapshot fromColumns(long[] ids, long[] datesModified, long[] datesAdded, long[] datesTaken,
+                                     int[] folderIndexes, byte[] types, char[] pathChars, int[] pathEnds,
+                                     String[] folderNames, int count, SyncPoint syncPoint) {
+        return new MediaSnapshot(ids, datesModified, datesAdded, datesTaken, folderIndexes, types, pathChars,
+                pathEnds, folderNames, null, count, syncPoint);
+    }
+
+    /**
+     * Type code of a MIME type, the path is only looked at when MediaStore has no MIME type for the row
+     */
+    public static byte resolveType(String mimeType, String path) {
+        if (mimeType == null || mimeType.isEmpty()) {
+            if (ImagePickerUtils.isVideoFormat(path)) {
+                return TYPE_VIDEO;
+            }
+            return ImagePickerUtils.isGifFormat(path) ? TYPE_GIF : TYPE_IMAGE;
+        }
+        if (mimeType.startsWith("video/")) {
+            return TYPE_VIDEO;
+        }
+        return mimeType.equalsIgnoreCase("image/gif") ? TYPE_GIF : TYPE_IMAGE;
+    }
+
+    public static MediaSnapshot fromImages(List<Image> images) {
+        Builder builder = new Builder(images.size(), 0);
+        for (Image image : images) {
+            builder.add(image.getId(), image.getPath(), null, 0);
+        }
+        return builder.build();
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getId(int position) {
+        return ids[row(position)];
+    }
+
+    /**
+     * Last modification time of the file in seconds, as reported by MediaStore
+     */
+    /**
+     * Adapter id of the row, the MediaStore id or a hash of the path for rows without one
+     */
+    public long getStableId(int position) {
+        int row = row(position);
+        if (ids[row] != 0) {
+            return ids[row];
+        }
+        return ImagePickerUtils.negativeHash(pathChars, row == 0 ? 0 : pathEnds[row - 1], pathEnds[row]);
+    }
+
+    public long getDateModified(int position) {
+        return datesModified[row(position)];
+    }
+
+    /**
+     * Time the file was added in seconds, as reported by MediaStore, rows are sorted newest first by it
+     */
+    public long getDateAdded(int position) {
+        return datesAdded[row(position)];
+    }
+
+    /**
+     * Capture time in milliseconds, the time the file was added when MediaStore doesn't know it
+     */
+    public long getDateTaken(int position) {
+        return datesTaken[row(position)];
+    }
+
+    /**
+     * One of {@link #TYPE_IMAGE}, {@link #TYPE_GIF} or {@link #TYPE_VIDEO}
+     */
+    public byte getType(int position) {
+        return types[row(position)];
+    }
+
+    public String getPath(int position) {
+        int row = row(position);
+        int start = row == 0 ? 0 : pathEnds[row - 1];
+        return new String(pathChars, start, pathEnds[row] - start);
+    }
+
+    public String getName(int position) {
+        return ImagePickerUtils.getNameFromFilePath(getPath(position));
+    }
+
+    int getPathLength(int position) {
+        int row = row(position);
+        return pathEnds[row] - (row == 0 ? 0 : pathEnds[row - 1]);
+    }
+
+    void putPath(int position, CharBuffer out) {
+        int row = row(position);
+        int start = row == 0 ? 0 : pathEnds[row - 1];
+        out.put(pathChars, start, pathEnds[row] - start);
+    }
+
+    /**
+     * Whether a row of another snapshot shows the same file the same way, the id is not compared
+     * Paths are compared in place, without creating Strings
+     */
+    public boolean isSameRow(int position, MediaSnapshot other, int otherPosition) {
+        int row = row(position);
+        int otherRow = other.row(otherPosition);
+        if (datesModified[row] != other.datesModified[otherRow]
+                || datesAdded[row] != other.datesAdded[otherRow]
+                || datesTaken[row] != other.datesTaken[otherRow]
+                || types[row] != other.types[otherRow]) {
+            return false;
+        }
+
+        int folderIndex = folderIndexes[row];
+        int otherFolderIndex = other.folderIndexes[otherRow];
+        if ((folderIndex < 0) != (otherFolderIndex < 0)
+                || (folderIndex >= 0 && !folderNames[folderIndex].equals(other.folderNames[otherFolderIndex]))) {
+            return false;
+        }
+
+        int start = row == 0 ? 0 : pathEnds[row - 1];
+        int otherStart = otherRow == 0 ? 0 : other.pathEnds[otherRow - 1];
+        int length = pathEnds[row] - start;
+        if (length != other.pathEnds[otherRow] - otherStart) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (pathChars[start + i] != other.pathChars[otherStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getFolderCount() {
+        return folderNames.length;
+    }
+
+    public String getFolderNameAt(int folderIndex) {
+        return folderNames[folderIndex];
+    }
+
+    public int getFolderIndex(int position) {
+        return folderIndexes[row(position)];
+    }
+
+    public String getFolderName(int position) {
+        int folderIndex = getFolderIndex(position);
+        return folderIndex < 0 ? null : folderNames[folderIndex];
+    }
+
+    /**
+     * Position of the row with the given MediaStore id, or -1 when it's not in this snapshot
+     */
+    public int indexOfId(long id) {
+        IdIndex index = idIndex;
+        if (index == null) {
+            index = new IdIndex(this);
+            idIndex = index;
+        }
+        return index.get(id);
+    }
+
+    public boolean containsId(long id) {
+        return indexOfId(id) >= 0;
+    }
+
+    /**
+     * Position of the first row at or after {@code from} with the given path, or -1
+     * Paths are compared in place and ignoring case like {@link Image#equals(Object)}, without creating Strings
+     */
+    public int indexOfPath(String path, int from) {
+        int length = path.length();
+        for (int position = Math.max(from, 0); position < count; position++) {
+            int row = row(position);
+            int start = row == 0 ? 0 : pathEnds[row - 1];
+            if (pathEnds[row] - start == length && matchesPath(start, path)) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    /* Same folding as String.equalsIgnoreCase, from the end since paths mostly share their folder */
+    private boolean matchesPath(int start, String path) {
+        for (int i = path.length() - 1; i >= 0; i--) {
+            char a = pathChars[start + i];
+            char b = path.charAt(i);
+            if (a == b) {
+                continue;
+            }
+            a = Character.toUpperCase(a);
+            b = Character.toUpperCase(b);
+            if (a != b && Character.toLowerCase(a) != Character.toLowerCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Month sections of the rows, built on first use
+     */
+    public MediaSections getSections() {
+        MediaSections sections = this.sections;
+        if (sections == null) {
+            sections = MediaSections.of(this);
+            this.sections = sections;
+        }
+        return sections;
+    }
+
+    public SyncPoint getSyncPoint() {
+        return syncPoint;
+    }
+
+    public Image toImage(int position) {
+        return new Image(getId(position), getName(position), getPath(position));
+    }
+
+    public ArrayList<Image> toImages() {
+        ArrayList<Image> images = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            images.add(toImage(i));
+        }
+        return images;
+    }
+
+    /**
+     * Group the rows by folder, in the order the folders first appear
+     * Every folder is a view over the same columns, nothing is copied but the row numbers
+     */
+    public List<Folder> toFolders() {
+        Map<Integer, IntArray> folderRows = new HashMap<>();
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int folderIndex = getFolderIndex(i);
+            if (folderIndex < 0) {
+                continue;
+            }
+            IntArray positions = folderRows.get(folderIndex);
+            if (positions == null) {
+                positions = new IntArray();
+                folderRows.put(folderIndex, positions);
+                order.add(folderIndex);
+            }
+            positions.add(row(i));
+        }
+
+        List<Folder> folders = new ArrayList<>(order.size());
+        for (Integer folderIndex : order) {
+            IntArray positions = folderRows.get(folderIndex);
+            MediaSnapshot media = new MediaSnapshot(ids, datesModified, datesAdded, datesTaken, folderIndexes, types,
+                    pathChars, pathEnds, folderNames, positions.toArray(), positions.size, syncPoint);
+            folders.add(new Folder(folderNames[folderIndex], media));
+        }
+        return folders;
+    }
+
+    private int row(int position) {
+        if (position < 0 || position >= count) {
+            throw new IndexOutOfBoundsException("Position " + position + " out of " + count);
+        }
+        return rows == null ? position : rows[position];
+    }
+
+    /* --------------------------------------------------- */
+    /* > Builder */
+    /* --------------------------------------------------- */
+
+    public static class Builder {
+
+        private long[] ids;
+        private long[] datesModified;
+        private long[] datesAdded;
+        private long[] datesTaken;
+        private int[] folderIndexes;
+        private byte[] types;
+        private int[] pathEnds;
+        private char[] pathChars;
+        private int pathLength;
+        private int count;
+
+        private SyncPoint syncPoint = SyncPoint.NONE;
+
+        private final List<String> folderNames = new ArrayList<>();
+        private final Map<String, Integer> folderLookup = new HashMap<>();
+
+        public Builder() {
+            this(256, 64);
+        }
+
+        public Builder(int expectedRows, int expectedPathLength) {
+            int rows = Math.max(expectedRows, 16);
+            ids = new long[rows];
+            datesModified = new long[rows];
+            datesAdded = new long[rows];
+            datesTaken = new long[rows];
+            folderIndexes = new int[rows];
+            types = new byte[rows];
+            pathEnds = new int[rows];
+            pathChars = new char[rows * Math.max(expectedPathLength, 16)];
+        }
+
+        /**
+         * Append a row, growing the columns when needed
+         * Growing always allocates new arrays, so rows already published by {@link #build()} are never written again
+         */
+        public Builder add(long id, String path, String folderName, long dateModified, long dateAdded,
+                           long dateTaken, byte type) {
+            int length = path.length();
+            ensureCapacity(length);
+            path.getChars(0, length, pathChars, pathLength);
+            return append(id, length, internFolder(folderName), dateModified, dateAdded, dateTaken, type);
+        }
+
+        /**
+         * Append a row whose add and capture times are unknown, its modification time is used instead
+         */
+        public Builder add(long id, String path, String folderName, long dateModified, byte type) {
+            return add(id, path, folderName, dateModified, dateModified, dateModified * 1000, type);
+        }
+
+        /**
+         * Append a row whose type is guessed from its path
+         */
+        public Builder add(long id, String path, String folderName, long dateModified) {
+            return add(id, path, folderName, dateModified, resolveType(null, path));
+        }
+
+        /**
+         * Copy a row of another snapshot, path chars are copied without going through a String
+         */
+        public Builder addFrom(MediaSnapshot source, int position) {
+            int row = source.row(position);
+            int start = row == 0 ? 0 : source.pathEnds[row - 1];
+            int length = source.pathEnds[row] - start;
+            ensureCapacity(length);
+            System.arraycopy(source.pathChars, start, pathChars, pathLength, length);
+
+            int folderIndex = source.folderIndexes[row];
+            return append(source.ids[row], length,
+                    folderIndex < 0 ? -1 : internFolder(source.folderNames[folderIndex]),
+                    source.datesModified[row], source.datesAdded[row], source.datesTaken[row], source.types[row]);
+        }
+
+        public Builder setSyncPoint(SyncPoint syncPoint) {
+            this.syncPoint = syncPoint;
+            return this;
+        }
+
+        private void ensureCapacity(int pathLength) {
+            if (count == ids.length) {
+                int capacity = count * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                datesModified = Arrays.copyOf(datesModified, capacity);
+                datesAdded = Arrays.copyOf(datesAdded, capacity);
+                datesTaken = Arrays.copyOf(datesTaken, capacity);
+                folderIndexes = Arrays.copyOf(folderIndexes, capacity);
+                types = Arrays.copyOf(types, capacity);
+                pathEnds = Arrays.copyOf(pathEnds, capacity);
+            }
+            if (this.pathLength + pathLength > pathChars.length) {
+                pathChars = Arrays.copyOf(pathChars, Math.max(pathChars.length * 2, this.pathLength + pathLength));
+            }
+        }
+
+        private Builder append(long id, int pathLength, int folderIndex, long dateModified, long dateAdded,
+                               long dateTaken, byte type) {
+            this.pathLength += pathLength;
+            ids[count] = id;
+            datesModified[count] = dateModified;
+            datesAdded[count] = dateAdded;
+            datesTaken[count] = dateTaken;
+            pathEnds[count] = this.pathLength;
+            folderIndexes[count] = folderIndex;
+            types[count] = type;
+            count++;
+            return this;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public MediaSnapshot build() {
+            return new MediaSnapshot(ids, datesModified, datesAdded, datesTaken, folderIndexes, types, pathChars,
+                    pathEnds, folderNames.toArray(new String[0]), null, count, syncPoint);
+        }
+
+        private int internFolder(String folderName) {
+            if (folderName == null) {
+                return -1;
+            }
+            Integer index = folderLookup.get(folderName);
+            if (index == null) {
+                index = folderNames.size();
+                folderNames.add(folderName);
+                folderLookup.put(folderName, index);
+            }
+            return index;
+        }
+    }
+
+    private static class IntArray {
+
+        private int[] values = new int[16];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /* --------------------------------------------------- */
+    /* > Sync */
+    /* --------------------------------------------------- */
+
+    /**
+     * Newest MediaStore markers seen while building a snapshot
+     * Rows added or modified later than these markers are what an incremental sync has to query
+     */
+    public static class SyncPoint {
+
+        public static final SyncPoint NONE = new SyncPoint(0, 0, 0);
+
+        private final long dateAdded;
+        private final long dateModified;
+        private final long generation;
+
+        public SyncPoint(long dateAdded, long dateModified, long generation) {
+            this.dateAdded = dateAdded;
+            this.dateModified = dateModified;
+            this.generation = generation;
+        }
+
+        public long getDateAdded() {
+            return dateAdded;
+        }
+
+        public long getDateModified() {
+            return dateModified;
+        }
+
+        /**
+         * MediaStore generation, only available on Android 11 and above, 0 otherwise
+         */
+        public long getGeneration() {
+            return generation;
+        }
+
+        public SyncPoint max(long dateAdded, long dateModified, long generation) {
+            if (dateAdded <= this.dateAdded && dateModified <= this.dateModified && generation <= this.generation) {
+                return this;
+            }
+            return new SyncPoint(
+                    Math.max(dateAdded, this.dateAdded),
+                    Math.max(dateModified, this.dateModified),
+                    Math.max(generation, this.generation));
+        }
+    }
+
+    /**
+     * Open addressing map from MediaStore id to position
+     */
+    private static class IdIndex {
+
+        private final long[] keys;
+        private final int[] positions;
+        private final int mask;
+
+        IdIndex(MediaSnapshot snapshot) {
+            int capacity = Integer.highestOneBit(Math.max(snapshot.count, 1) * 2 - 1) << 1;
+            keys = new long[capacity];
+            positions = new int[capacity];
+            mask = capacity - 1;
+            Arrays.fill(positions, -1);
+            for (int i = 0; i < snapshot.count; i++) {
+                long id = snapshot.getId(i);
+                int slot = slot(id);
+                while (positions[slot] >= 0 && keys[slot] != id) {
+                    slot = (slot + 1) & mask;
+                }
+                if (positions[slot] < 0) {
+                    keys[slot] = id;
+                    positions[slot] = i;
+                }
+            }
+        }
+
+        int get(long id) {
+            int slot = slot(id);
+            while (positions[slot] >= 0) {
+                if (keys[slot] == id) {
+                    return positions[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -1;
+        }
+
+        private int slot(long id) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.imagepicker.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * Binary form of a {@link MediaSnapshot}, laid out so every column is read back with one bulk copy
+ * <pre>
+ * int    magic, version
+ * long   key                        caller defined, e.g. the query options the snapshot was built with
+ * int    count, folderCount, pathLength
+ * long   syncDateAdded, syncDateModified, syncGeneration
+ * folderCount x (short length, chars)
+ * long[] ids, datesModified, datesAdded, datesTaken
+ * int[]  folderIndexes, pathEnds
+ * char[] pathChars
+ * byte[] types
+ * int    CRC32 of everything above
+ * </pre>
+ */
+public final class MediaSnapshotCodec {
+
+    private static final int MAGIC = 0x49504D58; // "IPMX"
+
+    public static final int VERSION = 4;
+
+    private MediaSnapshotCodec() {
+    }
+
+    public static ByteBuffer encode(MediaSnapshot snapshot, long key) {
+        final int count = snapshot.size();
+        final int folderCount = snapshot.getFolderCount();
+
+        int pathLength = 0;
+        for (int i = 0; i < count; i++) {
+            pathLength += snapshot.getPathLength(i);
+        }
+        int folderBytes = 0;
+        for (int i = 0; i < folderCount; i++) {
+            folderBytes += 2 + snapshot.getFolderNameAt(i).length() * 2;
+        }
+
+        int size = 4 * 2 + 8 + 4 * 3 + 8 * 3 + folderBytes
+                + count * (8 + 8 + 8 + 8 + 4 + 4 + 1) + pathLength * 2 + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+
+        MediaSnapshot.SyncPoint syncPoint = snapshot.getSyncPoint();
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putLong(key)
+                .putInt(count)
+                .putInt(folderCount)
+                .putInt(pathLength)
+                .putLong(syncPoint.getDateAdded())
+                .putLong(syncPoint.getDateModified())
+                .putLong(syncPoint.getGeneration());
+
+        for (int i = 0; i < folderCount; i++) {
+            String name = snapshot.getFolderNameAt(i);
+            buffer.putShort((short) name.length());
+            for (int c = 0; c < name.length(); c++) {
+                buffer.putChar(name.charAt(c));
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(snapshot.getId(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(snapshot.getDateModified(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(snapshot.getDateAdded(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putLong(snapshot.getDateTaken(i));
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(snapshot.getFolderIndex(i));
+        }
+        int pathEnd = 0;
+        for (int i = 0; i < count; i++) {
+            pathEnd += snapshot.getPathLength(i);
+            buffer.putInt(pathEnd);
+        }
+        CharBuffer chars = buffer.asCharBuffer();
+        for (int i = 0; i < count; i++) {
+            snapshot.putPath(i, chars);
+        }
+        buffer.position(buffer.position() + pathLength * 2);
+        for (int i = 0; i < count; i++) {
+            buffer.put(snapshot.getType(i));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * @throws IOException when the data is corrupted, written by another format version or for another key
+     */
+    public static MediaSnapshot decode(ByteBuffer buffer, long key) throws IOException {
+        try {
+            verifyChecksum(buffer);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a media index");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported media index version " + version);
+            }
+            if (buffer.getLong() != key) {
+                throw new IOException("Media index was built with other options");
+            }
+
+            final int count = buffer.getInt();
+            final int folderCount = buffer.getInt();
+            final int pathLength = buffer.getInt();
+            if (count < 0 || folderCount < 0 || pathLength < 0) {
+                throw new IOException("Corrupted media index header");
+            }
+            MediaSnapshot.SyncPoint syncPoint = new MediaSnapshot.SyncPoint(
+                    buffer.getLong(), buffer.getLong(), buffer.getLong());
+
+            String[] folderNames = new String[folderCount];
+            for (int i = 0; i < folderCount; i++) {
+                char[] name = new char[buffer.getShort() & 0xFFFF];
+                buffer.asCharBuffer().get(name);
+                skip(buffer, name.length * 2);
+                folderNames[i] = new String(name);
+            }
+
+            long[] ids = new long[count];
+            buffer.asLongBuffer().get(ids);
+            skip(buffer, count * 8);
+
+            long[] datesModified = new long[count];
+            buffer.asLongBuffer().get(datesModified);
+            skip(buffer, count * 8);
+
+            long[] datesAdded = new long[count];
+            buffer.asLongBuffer().get(datesAdded);
+            skip(buffer, count * 8);
+
+            long[] datesTaken = new long[count];
+            buffer.asLongBuffer().get(datesTaken);
+            skip(buffer, count * 8);
+
+            int[] folderIndexes = new int[count];
+            buffer.asIntBuffer().get(folderIndexes);
+            skip(buffer, count * 4);
+
+            int[] pathEnds = new int[count];
+            buffer.asIntBuffer().get(pathEnds);
+            skip(buffer, count * 4);
+
+            char[] pathChars = new char[pathLength];
+            buffer.asCharBuffer().get(pathChars);
+            skip(buffer, pathLength * 2);
+
+            byte[] types = new byte[count];
+            buffer.get(types);
+
+            for (int i = 0; i < count; i++) {
+                if (folderIndexes[i] >= folderCount || pathEnds[i] > pathLength
+                        || (i > 0 && pathEnds[i] < pathEnds[i - 1])) {
+                    throw new IOException("Corrupted media index row " + i);
+                }
+            }
+
+            return MediaSnapshot.fromColumns(ids, datesModified, datesAdded, datesTaken, folderIndexes, types,
+                    pathChars, pathEnds, folderNames, count, syncPoint);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated media index", e);
+        }
+    }
+
+    private static void verifyChecksum(ByteBuffer buffer) throws IOException {
+        final int start = buffer.position();
+        final int end = buffer.limit() - 4;
+        if (end < start) {
+            throw new IOException("Truncated media index");
+        }
+
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[64 * 1024];
+        ByteBuffer body = buffer.duplicate();
+        body.limit(end);
+        while (body.hasRemaining()) {
+            int length = Math.min(chunk.length, body.remaining());
+            body.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        if ((int) crc.getValue() != buffer.getInt(end)) {
+            throw new IOException("Media index checksum mismatch");
+        }
+    }
+
+    private static void skip(ByteBuffer buffer, int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+}
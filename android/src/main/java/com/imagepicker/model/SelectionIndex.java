@@ -0,0 +1,221 @@
+package com.imagepicker.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Selected images in selection order, looked up by MediaStore id in constant time
+ * Images without an id, e.g. passed in by path only, are looked up by path instead, ignoring case like
+ * {@link Image#equals(Object)}. Lookups by id don't allocate, so they can run on every bind.
+ */
+public class SelectionIndex implements Iterable<Image> {
+
+    /* Keyed by id, or by folded path for images without one */
+    private final LinkedHashMap<Object, Image> images = new LinkedHashMap<>();
+
+    private final IdSet ids = new IdSet();
+    private final Set<String> paths = new HashSet<>();
+
+    public int size() {
+        return images.size();
+    }
+
+    public boolean isEmpty() {
+        return images.isEmpty();
+    }
+
+    public boolean contains(long id, String path) {
+        if (id != 0 && ids.contains(id)) {
+            return true;
+        }
+        return !paths.isEmpty() && paths.contains(foldPath(path));
+    }
+
+    /**
+     * Lookup by id only, enough when {@link #hasPathsOnly()} is false
+     */
+    public boolean containsId(long id) {
+        return id != 0 && ids.contains(id);
+    }
+
+    /**
+     * Whether some images were selected without an id, looking them up needs their path
+     */
+    public boolean hasPathsOnly() {
+        return !paths.isEmpty();
+    }
+
+    public boolean contains(Image image) {
+        return contains(image.getId(), image.getPath());
+    }
+
+    /**
+     * @return false when the image was already selected
+     */
+    public boolean add(Image image) {
+        if (contains(image)) {
+            return false;
+        }
+        if (image.getId() != 0) {
+            ids.add(image.getId());
+            images.put(image.getId(), image);
+        } else {
+            String key = foldPath(image.getPath());
+            paths.add(key);
+            images.put(key, image);
+        }
+        return true;
+    }
+
+    public void addAll(List<Image> images) {
+        for (Image image : images) {
+            add(image);
+        }
+    }
+
+    /**
+     * @return the removed image, or null when it wasn't selected
+     */
+    public Image remove(long id, String path) {
+        if (id != 0 && ids.remove(id)) {
+            return images.remove(id);
+        }
+        String key = foldPath(path);
+        if (paths.remove(key)) {
+            return images.remove(key);
+        }
+        return null;
+    }
+
+    public void clear() {
+        images.clear();
+        ids.clear();
+        paths.clear();
+    }
+
+    @Override
+    public Iterator<Image> iterator() {
+        return images.values().iterator();
+    }
+
+    /**
+     * Copy of the selection in selection order
+     */
+    public ArrayList<Image> toList() {
+        return new ArrayList<>(images.values());
+    }
+
+    /**
+     * Path with every char folded the way {@link Image#hashCode()} folds it, the path itself when nothing changes
+     */
+    static String foldPath(String path) {
+        if (path == null) {
+            return null;
+        }
+        char[] chars = null;
+        for (int i = 0, length = path.length(); i < length; i++) {
+            char c = path.charAt(i);
+            char folded = Character.toLowerCase(Character.toUpperCase(c));
+            if (folded != c) {
+                if (chars == null) {
+                    chars = path.toCharArray();
+                }
+                chars[i] = folded;
+            }
+        }
+        return chars == null ? path : new String(chars);
+    }
+
+    /**
+     * Open addressing set of ids, removal shifts the following entries back instead of leaving tombstones
+     */
+    private static class IdSet {
+
+        private long[] keys = new long[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        boolean contains(long id) {
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (used[slot]) {
+                if (keys[slot] == id) {
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return false;
+        }
+
+        void add(long id) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (used[slot]) {
+                if (keys[slot] == id) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = id;
+            used[slot] = true;
+            size++;
+        }
+
+        boolean remove(long id) {
+            int mask = keys.length - 1;
+            int slot = slot(id, mask);
+            while (used[slot] && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                return false;
+            }
+
+            /* Move back every following entry whose home slot is at or before the hole */
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (used[next]) {
+                int home = slot(keys[next], mask);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            used[hole] = false;
+            size--;
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            used = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    add(oldKeys[i]);
+                }
+            }
+        }
+
+        private static int slot(long id, int mask) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+}
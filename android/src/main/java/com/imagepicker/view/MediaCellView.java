@@ -0,0 +1,116 @@
+package com.imagepicker.view;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.drawable.Drawable;
+import android.util.AttributeSet;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.widget.AppCompatImageView;
+import androidx.core.content.ContextCompat;
+
+import com.christian.christian_picker_image.R;
+
+/**
+ * Square grid cell drawing the thumbnail, the selection dim, the check mark and the GIF/video badge itself
+ * Same look as ef_imagepicker_item_image, in one view instead of four, so a cell costs a single measure and draw.
+ */
+public class MediaCellView extends AppCompatImageView {
+
+    /* Alpha of the white dim over a selected thumbnail, like the alpha view of the layout */
+    private static final int SELECTED_DIM_ALPHA = 0x80;
+
+    private final Paint dimPaint = new Paint();
+    private final Paint badgePaint = new Paint();
+    private final Paint textPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Drawable checkDrawable;
+
+    private final int badgePaddingHorizontal;
+    private final int badgePaddingVertical;
+    private final Paint.FontMetrics fontMetrics = new Paint.FontMetrics();
+    private final float badgeHeight;
+
+    private boolean isChecked;
+    private String badge;
+    private float badgeTextWidth;
+
+    public MediaCellView(Context context) {
+        this(context, null);
+    }
+
+    public MediaCellView(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public MediaCellView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+        setScaleType(ScaleType.CENTER_CROP);
+        setContentDescription(context.getString(R.string.ef_content_desc_image));
+
+        dimPaint.setColor(ContextCompat.getColor(context, R.color.ef_white));
+        dimPaint.setAlpha(SELECTED_DIM_ALPHA);
+        badgePaint.setColor(ContextCompat.getColor(context, R.color.ef_black_alpha_aa));
+        textPaint.setColor(ContextCompat.getColor(context, R.color.ef_white));
+        textPaint.setTextSize(getResources().getDimension(R.dimen.ef_font_small));
+
+        checkDrawable = ContextCompat.getDrawable(context, R.drawable.ic_done_teal);
+        badgePaddingHorizontal = getResources().getDimensionPixelSize(R.dimen.ef_spacing_double);
+        badgePaddingVertical = getResources().getDimensionPixelSize(R.dimen.ef_spacing_half);
+        textPaint.getFontMetrics(fontMetrics);
+        badgeHeight = fontMetrics.descent - fontMetrics.ascent + 2 * badgePaddingVertical;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        super.onMeasure(widthMeasureSpec, widthMeasureSpec);
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        int left = (w - checkDrawable.getIntrinsicWidth()) / 2;
+        int top = (h - checkDrawable.getIntrinsicHeight()) / 2;
+        checkDrawable.setBounds(left, top,
+                left + checkDrawable.getIntrinsicWidth(), top + checkDrawable.getIntrinsicHeight());
+    }
+
+    public void setChecked(boolean isChecked) {
+        if (this.isChecked != isChecked) {
+            this.isChecked = isChecked;
+            invalidate();
+        }
+    }
+
+    /**
+     * Label drawn at the bottom left, null to hide it
+     */
+    public void setBadge(@Nullable String badge) {
+        if (this.badge == null ? badge == null : this.badge.equals(badge)) {
+            return;
+        }
+        this.badge = badge;
+        this.badgeTextWidth = badge == null ? 0 : textPaint.measureText(badge);
+        invalidate();
+    }
+
+    /* Same stacking as the layout: dim view, badge text view, then the foreground check */
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+
+        int width = getWidth();
+        int height = getHeight();
+        if (isChecked) {
+            canvas.drawRect(0, 0, width, height, dimPaint);
+        }
+        if (badge != null) {
+            float top = height - badgeHeight;
+            canvas.drawRect(0, top, badgeTextWidth + 2 * badgePaddingHorizontal, height, badgePaint);
+            canvas.drawText(badge, badgePaddingHorizontal, top + badgePaddingVertical - fontMetrics.ascent, textPaint);
+        }
+        if (isChecked) {
+            checkDrawable.draw(canvas);
+        }
+    }
+}
@@ -1,121 +1,573 @@
 package com.christian.christian_picker_image
 
+import android.Manifest
 import android.app.Activity
 import android.content.Context
 import android.content.Intent
+import android.content.pm.PackageManager
+import android.graphics.Bitmap
 import java.util.ArrayList
-import android.os.Environment
-//import com.christian.christian_picker_image.camera.CameraActivity
+import android.os.Handler
+import android.os.Looper
+import android.util.SparseArray
+import androidx.core.app.ActivityCompat
 
+import io.flutter.embedding.engine.plugins.FlutterPlugin
+import io.flutter.embedding.engine.plugins.activity.ActivityAware
+import io.flutter.embedding.engine.plugins.activity.ActivityPluginBinding
 import io.flutter.plugin.common.BinaryMessenger
+import io.flutter.plugin.common.EventChannel
 import io.flutter.plugin.common.MethodCall
 import io.flutter.plugin.common.MethodChannel
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler
 import io.flutter.plugin.common.MethodChannel.Result
 import io.flutter.plugin.common.PluginRegistry
 import io.flutter.plugin.common.PluginRegistry.Registrar
-import io.flutter.view.FlutterView
+import io.flutter.plugin.common.StandardMethodCodec
 
-import com.imagepicker.features.ImagePicker;
+import com.imagepicker.features.ExclusionFilter
+import com.imagepicker.features.ImageFileLoader
+import com.imagepicker.features.ImagePicker
+import com.imagepicker.features.IpCons
+import com.imagepicker.features.common.FolderLoaderListener
+import com.imagepicker.features.common.MediaWindowListener
+import com.imagepicker.helper.ThumbnailEncoder
+import com.imagepicker.model.Folder
 import com.imagepicker.model.Image
+import com.imagepicker.model.MediaSnapshot
+import java.io.File
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
 
 /**
  * ChristianPickerImagePlugin
+ *
+ * Method calls arrive on a background task queue, anything touching the activity is posted to the main thread.
+ * File and MediaStore work runs on worker threads, the platform thread only starts activities and relays replies.
+ *
+ * Apps on the v1 embedding register through [registerWith], which has no background task queue. Calls arrive on the
+ * platform thread there, so decoding the arguments and encoding the replies, e.g. the columns of a large queryMedia
+ * window, run on the UI thread. Move to the v2 embedding to keep them off it.
  */
-class ChristianPickerImagePlugin : MethodCallHandler, PluginRegistry.ActivityResultListener, PluginRegistry.RequestPermissionsResultListener {
+class ChristianPickerImagePlugin : FlutterPlugin, ActivityAware, MethodCallHandler, EventChannel.StreamHandler, PluginRegistry.ActivityResultListener {
 
-    private val view: FlutterView? = null
-    private var pendingResult: Result? = null
-    private val methodCall: MethodCall? = null
+    /**
+     * A picker opened for one call or one stream, answered when its request code comes back
+     */
+    private class PendingPick(val result: Result?, val sink: EventChannel.EventSink?, val thumbnailEncoder: ThumbnailEncoder?)
 
+    /* Read by the queued handlers on the background task queue, cleared when the engine detaches */
+    @Volatile
     private var context: Context? = null
     private var activity: Activity? = null
+    private var activityBinding: ActivityPluginBinding? = null
     private var channel: MethodChannel? = null
-    private var messenger: BinaryMessenger? = null
+    private var picksChannel: EventChannel? = null
 
-    private val REQUEST_CODE_CHOOSE = 1001
-    private val REQUEST_CODE_GRANT_PERMISSIONS = 2001
+    /* Keyed by request code, only touched on the main thread */
+    private val pendingPicks = SparseArray<PendingPick>()
+    private var nextPickCode = 0
 
-    private val NumberOfImagesToSelect = 5
+    /* Request code of the pick feeding the current event stream, -1 when none */
+    private var streamPickCode = -1
 
-    private constructor(_activity: Activity, _context: Context, _channel: MethodChannel, _messenger: BinaryMessenger) {
-        this.activity = _activity
-        this.context = _context
-        this.channel = _channel
-        this.messenger = _messenger
+    /* Serves queryMedia and queryFolders, loads run off the main thread and answer on it. Created by the first query */
+    private var mediaLoader: ImageFileLoader? = null
+    private val mainHandler = Handler(Looper.getMainLooper())
+
+    /* Reads the picked files' metadata, one thread keeps the items of a stream in order */
+    private val resultExecutorDelegate = lazy { Executors.newSingleThreadExecutor() }
+    private val resultExecutor: ExecutorService by resultExecutorDelegate
+
+    /**
+     * Calls waiting for the running folder load, and the filter it runs with
+     * A newer call with the same filter restarts the load and every waiting call gets the newest result.
+     * A call with another filter replaces the load, the calls waiting for the old one are rejected.
+     */
+    private val pendingFolderResults = ArrayList<Result>()
+    private var pendingFolderFilter: Map<String, Any?>? = null
+    private var folderLoadVersion = 0
+
+    override fun onAttachedToEngine(binding: FlutterPlugin.FlutterPluginBinding) {
+        attach(binding.applicationContext, binding.binaryMessenger, binding.binaryMessenger.makeBackgroundTaskQueue())
+    }
+
+    override fun onDetachedFromEngine(binding: FlutterPlugin.FlutterPluginBinding) {
+        channel?.setMethodCallHandler(null)
+        picksChannel?.setStreamHandler(null)
+        channel = null
+        picksChannel = null
+        synchronized(this) {
+            mediaLoader?.abortLoadImages()
+            mediaLoader = null
+            context = null
+        }
+        if (resultExecutorDelegate.isInitialized()) {
+            resultExecutor.shutdown()
+        }
     }
 
+    private fun attach(context: Context, messenger: BinaryMessenger, taskQueue: BinaryMessenger.TaskQueue?) {
+        this.context = context
+        channel = MethodChannel(messenger, CHANNEL, StandardMethodCodec.INSTANCE, taskQueue)
+        channel?.setMethodCallHandler(this)
+        picksChannel = EventChannel(messenger, PICKS_CHANNEL)
+        picksChannel?.setStreamHandler(this)
+    }
+
+    override fun onAttachedToActivity(binding: ActivityPluginBinding) {
+        activityBinding = binding
+        activity = binding.activity
+        binding.addActivityResultListener(this)
+    }
 
-    override fun onRequestPermissionsResult(requestCode: Int, permissions: Array<String>, grantResults: IntArray): Boolean {
-        return false
+    override fun onDetachedFromActivityForConfigChanges() {
+        releaseActivity()
     }
 
-    private fun presentPicker(maxImages: Int) {
-        ImagePicker.create(this.activity)
+    /* Pending picks survive the recreation, their results are delivered to the new activity */
+    override fun onReattachedToActivityForConfigChanges(binding: ActivityPluginBinding) {
+        onAttachedToActivity(binding)
+    }
+
+    override fun onDetachedFromActivity() {
+        releaseActivity()
+        for (i in 0 until pendingPicks.size()) {
+            val pick = pendingPicks.valueAt(i)
+            pick.result?.error(ACTIVITY_DETACHED, "The activity was destroyed before the picker returned", null)
+            pick.sink?.endOfStream()
+        }
+        pendingPicks.clear()
+        streamPickCode = -1
+    }
+
+    private fun releaseActivity() {
+        activityBinding?.removeActivityResultListener(this)
+        activityBinding = null
+        activity = null
+    }
+
+    /* Picked images are replaced by resized copies when maxDimension is above 0 */
+    private fun presentPicker(activity: Activity, requestCode: Int, maxImages: Int, maxDimension: Int?, format: String?, quality: Int?) {
+        ImagePicker.create(activity)
                 .limit(maxImages)
                 .showCamera(true)// Activity or Fragment
-                .start();
+                .resize(maxDimension ?: 0, toCompressFormat(format), quality ?: IpCons.DEFAULT_RESIZE_QUALITY)
+                .start(requestCode);
     }
 
-    override fun onMethodCall(call: MethodCall, result: Result) {
+    /**
+     * Open a picker answered through its own request code, so concurrent calls don't overwrite each other
+     *
+     * @return the request code, or -1 when there is no activity to open it from
+     */
+    private fun startPick(pick: PendingPick, arguments: Map<*, *>?): Int {
+        val activity = this.activity ?: return -1
 
-        this.pendingResult = result;
+        val requestCode = PICK_REQUEST_BASE + nextPickCode
+        nextPickCode = (nextPickCode + 1) % PICK_REQUEST_RANGE
+        pendingPicks.put(requestCode, pick)
+        presentPicker(activity, requestCode,
+                arguments?.get(MAX_IMAGES) as? Int ?: 0,
+                arguments?.get(MAX_DIMENSION) as? Int,
+                arguments?.get(OUTPUT_FORMAT) as? String,
+                arguments?.get(QUALITY) as? Int)
+        return requestCode
+    }
+
+    private fun prefetchImages() {
+        val activity = this.activity ?: return
+        ImagePicker.create(activity)
+                .showCamera(true)
+                .prefetch(activity)
+    }
+
+    override fun onMethodCall(call: MethodCall, result: Result) {
 
         when (call.method) {
             PICK_IMAGES -> {
-                val maxImages = call.argument<Int>(MAX_IMAGES)!!
+                val maxImages = call.argument<Int>(MAX_IMAGES) ?: 0
 
                 if (maxImages <= 0) {
+                    result.error(INVALID_ARGUMENT, "maxImages must be more than 0", null)
                     return
                 }
 
-                presentPicker(maxImages)
+                val arguments = call.arguments as? Map<*, *>
+                val encoder = createThumbnailEncoder(
+                        call.argument<Int>(THUMBNAIL_SIZE),
+                        call.argument<String>(THUMBNAIL_FORMAT),
+                        call.argument<Int>(THUMBNAIL_QUALITY))
+
+                mainHandler.post {
+                    if (startPick(PendingPick(result, null, encoder), arguments) < 0) {
+                        result.error(NO_ACTIVITY, "pickImages needs a foreground activity", null)
+                    }
+                }
+            }
+            PREFETCH -> {
+                mainHandler.post { prefetchImages() }
+                result.success(null)
             }
+            QUERY_MEDIA -> queryMedia(call, result)
+            QUERY_FOLDERS -> queryFolders(call, result)
             "getPlatformVersion" -> result.success("Android " + android.os.Build.VERSION.RELEASE)
             else -> result.notImplemented()
         }
     }
 
-    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent): Boolean {
+    /**
+     * Loader of the queries, null once the engine detached
+     * Created under the same lock the detach clears the context with, so it never outlives the engine
+     */
+    @Synchronized
+    private fun getMediaLoader(): ImageFileLoader? {
+        val context = this.context ?: return null
+        return mediaLoader ?: ImageFileLoader(context.applicationContext).also { mediaLoader = it }
+    }
+
+    /* Queries don't ask for the permission, that's left to the picker or the app */
+    private fun hasStoragePermission(): Boolean {
+        val context = this.context ?: return false
+        return ActivityCompat.checkSelfPermission(context, Manifest.permission.WRITE_EXTERNAL_STORAGE) ==
+                PackageManager.PERMISSION_GRANTED
+    }
+
+    private fun queryMedia(call: MethodCall, result: Result) {
+        val loader = getMediaLoader()
+        if (loader == null) {
+            result.error(ENGINE_DETACHED, "The plugin was detached from the engine", null)
+            return
+        }
+        if (!hasStoragePermission()) {
+            result.error(PERMISSION_DENIED, "Storage permission not granted", null)
+            return
+        }
+        val offset = call.argument<Int>(OFFSET) ?: 0
+        val limit = call.argument<Int>(LIMIT) ?: 0
+        if (offset < 0 || limit <= 0) {
+            result.error(INVALID_ARGUMENT, "offset must be 0 or more and limit more than 0", null)
+            return
+        }
+
+        val filter = call.argument<Map<String, Any?>>(FILTER)
+        val bucketId = (filter?.get(BUCKET_ID) as? Number)?.toLong()
+        loader.loadWindow(offset, limit, isIncludeVideo(filter), createExclusions(filter), bucketId,
+                object : MediaWindowListener {
+                    override fun onWindowLoaded(window: MediaSnapshot, nextOffset: Int) {
+                        val page = toMediaPage(window, nextOffset)
+                        mainHandler.post { result.success(page) }
+                    }
+
+                    override fun onFailed(throwable: Throwable) {
+                        mainHandler.post { result.error(QUERY_FAILED, throwable.message, null) }
+                    }
+                })
+    }
+
+    private fun queryFolders(call: MethodCall, result: Result) {
+        val loader = getMediaLoader()
+        if (loader == null) {
+            result.error(ENGINE_DETACHED, "The plugin was detached from the engine", null)
+            return
+        }
+        if (!hasStoragePermission()) {
+            result.error(PERMISSION_DENIED, "Storage permission not granted", null)
+            return
+        }
+        val filter = call.argument<Map<String, Any?>>(FILTER)
+        val superseded = ArrayList<Result>()
+        val version = synchronized(pendingFolderResults) {
+            if (filter != pendingFolderFilter) {
+                superseded.addAll(pendingFolderResults)
+                pendingFolderResults.clear()
+            }
+            pendingFolderFilter = filter
+            pendingFolderResults.add(result)
+            ++folderLoadVersion
+        }
+        if (superseded.isNotEmpty()) {
+            mainHandler.post {
+                superseded.forEach { it.error(SUPERSEDED, "queryFolders was called again with another filter", null) }
+            }
+        }
+
+        loader.loadFolders(isIncludeVideo(filter), createExclusions(filter), object : FolderLoaderListener {
+            override fun onFolderLoaded(folders: List<Folder>) {
+                val columns = toFolderColumns(folders)
+                mainHandler.post { finishFolders(version) { it.success(columns) } }
+            }
+
+            override fun onFailed(throwable: Throwable) {
+                mainHandler.post { finishFolders(version) { it.error(QUERY_FAILED, throwable.message, null) } }
+            }
+        })
+    }
+
+    /* Only the newest load answers, an older one finishing late ran before the last call joined */
+    private fun finishFolders(version: Int, reply: (Result) -> Unit) {
+        val results = synchronized(pendingFolderResults) {
+            if (version != folderLoadVersion) {
+                return
+            }
+            val waiting = ArrayList(pendingFolderResults)
+            pendingFolderResults.clear()
+            pendingFolderFilter = null
+            waiting
+        }
+        results.forEach(reply)
+    }
+
+    private fun isIncludeVideo(filter: Map<String, Any?>?): Boolean {
+        return filter?.get(INCLUDE_VIDEO) as? Boolean ?: false
+    }
+
+    private fun createExclusions(filter: Map<String, Any?>?): ExclusionFilter {
+        val ids = (filter?.get(EXCLUDE_IDS) as? List<*>)?.mapNotNull { (it as? Number)?.toLong() }
+        val folders = (filter?.get(EXCLUDE_FOLDERS) as? List<*>)?.filterIsInstance<String>()
+        return ExclusionFilter.create(ids?.toLongArray(), null, folders)
+    }
+
+    /* Columns go over the channel as typed arrays, Dart receives Int64List and Uint8List instead of a map per row */
+    private fun toMediaPage(window: MediaSnapshot, nextOffset: Int): Map<String, Any?> {
+        val size = window.size()
+        val ids = LongArray(size)
+        val paths = ArrayList<String>(size)
+        val types = ByteArray(size)
+        val datesTaken = LongArray(size)
+        val datesModified = LongArray(size)
+        for (i in 0 until size) {
+            ids[i] = window.getId(i)
+            paths.add(window.getPath(i))
+            types[i] = window.getType(i)
+            datesTaken[i] = window.getDateTaken(i)
+            datesModified[i] = window.getDateModified(i)
+        }
+
+        val page = HashMap<String, Any?>()
+        page.put("ids", ids)
+        page.put("paths", paths)
+        page.put("types", types)
+        page.put("datesTaken", datesTaken)
+        page.put("datesModified", datesModified)
+        page.put("nextOffset", if (nextOffset < 0) null else nextOffset)
+        return page
+    }
+
+    private fun toFolderColumns(folders: List<Folder>): Map<String, Any?> {
+        val size = folders.size
+        val bucketIds = LongArray(size)
+        val names = ArrayList<String?>(size)
+        val counts = IntArray(size)
+        val coverIds = LongArray(size)
+        val coverPaths = ArrayList<String?>(size)
+        for ((i, folder) in folders.withIndex()) {
+            bucketIds[i] = folder.bucketId
+            names.add(folder.folderName)
+            counts[i] = folder.count
+            coverIds[i] = folder.coverId
+            coverPaths.add(folder.coverPath)
+        }
+
+        val columns = HashMap<String, Any?>()
+        columns.put("bucketIds", bucketIds)
+        columns.put("names", names)
+        columns.put("counts", counts)
+        columns.put("coverIds", coverIds)
+        columns.put("coverPaths", coverPaths)
+        return columns
+    }
+
+    private fun createThumbnailEncoder(size: Int?, format: String?, quality: Int?): ThumbnailEncoder? {
+        if (size == null || size <= 0) {
+            return null
+        }
+        return ThumbnailEncoder(size, toCompressFormat(format), quality ?: IpCons.DEFAULT_THUMBNAIL_QUALITY)
+    }
+
+    private fun toCompressFormat(format: String?): Bitmap.CompressFormat {
+        return when (format) {
+            "webp" -> Bitmap.CompressFormat.WEBP
+            "png" -> Bitmap.CompressFormat.PNG
+            else -> Bitmap.CompressFormat.JPEG
+        }
+    }
+
+    /**
+     * Picks requested through the picks event channel, every item is sent as soon as it's ready
+     */
+    override fun onListen(arguments: Any?, events: EventChannel.EventSink?) {
+        val args = arguments as? Map<*, *>
+        val maxImages = args?.get(MAX_IMAGES) as? Int ?: 0
+        if (events == null || maxImages <= 0) {
+            events?.endOfStream()
+            return
+        }
+
+        val encoder = createThumbnailEncoder(
+                args?.get(THUMBNAIL_SIZE) as? Int,
+                args?.get(THUMBNAIL_FORMAT) as? String,
+                args?.get(THUMBNAIL_QUALITY) as? Int)
+        streamPickCode = startPick(PendingPick(null, events, encoder), args)
+        if (streamPickCode < 0) {
+            events.error(NO_ACTIVITY, "pickImagesStream needs a foreground activity", null)
+        }
+    }
+
+    /* The picker stays open, its result is dropped */
+    override fun onCancel(arguments: Any?) {
+        if (streamPickCode >= 0) {
+            pendingPicks.remove(streamPickCode)
+            streamPickCode = -1
+        }
+    }
+
+    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?): Boolean {
+        if (requestCode < PICK_REQUEST_BASE || requestCode >= PICK_REQUEST_BASE + PICK_REQUEST_RANGE) {
+            return false
+        }
+        val pick = pendingPicks.get(requestCode) ?: return true
+        pendingPicks.remove(requestCode)
+        if (requestCode == streamPickCode) {
+            streamPickCode = -1
+        }
+
+        // Get a list of picked images, none when the picker was cancelled
+        val images: List<Image> = if (resultCode == Activity.RESULT_OK)
+            ImagePicker.getImages(data) ?: emptyList()
+        else
+            emptyList()
+
+        if (pick.sink != null) {
+            streamImages(pick.sink, images, pick.thumbnailEncoder)
+        } else if (pick.result != null) {
+            replyImages(pick.result, images, pick.thumbnailEncoder)
+        }
+        return true
+    }
+
+    private fun replyImages(result: Result, images: List<Image>, encoder: ThumbnailEncoder?) {
+        if (encoder == null) {
+            executeResult {
+                val list = toResultList(images, null)
+                mainHandler.post { result.success(list) }
+            }
+            return
+        }
 
-        if (ImagePicker.shouldHandle(requestCode, resultCode, data)) {
-            // Get a list of picked images
-            val images: List<Image> = ImagePicker.getImages (data)
-            val list: ArrayList<Map<String,String>> = ArrayList<Map<String,String>>(0)
+        encoder.encode(images.map { it.path }) { thumbnails ->
+            executeResult {
+                val list = toResultList(images, thumbnails)
+                mainHandler.post { result.success(list) }
+            }
+        }
+    }
 
-            for (image in images) {
-                val containerMap = HashMap<String, String>()
-                containerMap.put("path", image.path)
-                list.add(containerMap)
+    /* Cancelling the picker ends the stream without items */
+    private fun streamImages(sink: EventChannel.EventSink, images: List<Image>, encoder: ThumbnailEncoder?) {
+        if (encoder == null) {
+            executeResult {
+                for ((index, image) in images.withIndex()) {
+                    val item = toResultMap(index, image, false, null)
+                    mainHandler.post { sink.success(item) }
+                }
+                mainHandler.post { sink.endOfStream() }
             }
+            return
+        }
 
-            this.pendingResult?.success(list)
+        encoder.encodeEach(images.map { it.path }, object : ThumbnailEncoder.ItemCallback {
+            override fun onItemEncoded(index: Int, thumbnail: ByteArray?) {
+                executeResult {
+                    val item = toResultMap(index, images[index], true, thumbnail)
+                    mainHandler.post { sink.success(item) }
+                }
+            }
+
+            override fun onComplete() {
+                executeResult {
+                    mainHandler.post { sink.endOfStream() }
+                }
+            }
+        })
+    }
+
+    /* Replies finishing after the engine detached are dropped, nobody listens and the executor is shut down */
+    private fun executeResult(task: () -> Unit) {
+        if (context != null) {
+            resultExecutor.execute { task() }
         }
+    }
 
-        return false
+    private fun toResultList(images: List<Image>, thumbnails: Array<ByteArray?>?): ArrayList<Map<String, Any?>> {
+        val list = ArrayList<Map<String, Any?>>(images.size)
+        for ((index, image) in images.withIndex()) {
+            list.add(toResultMap(index, image, thumbnails != null, thumbnails?.get(index)))
+        }
+        return list
+    }
+
+    /* Thumbnails go over the channel as byte[], which Dart receives as Uint8List */
+    private fun toResultMap(index: Int, image: Image, hasThumbnail: Boolean, thumbnail: ByteArray?): Map<String, Any?> {
+        val file = File(image.path)
+        val containerMap = HashMap<String, Any?>()
+        containerMap.put("index", index)
+        containerMap.put("path", image.path)
+        containerMap.put("id", image.id)
+        containerMap.put("name", image.name)
+        containerMap.put("size", file.length())
+        containerMap.put("lastModified", file.lastModified())
+        if (hasThumbnail) {
+            containerMap.put("thumbnail", thumbnail)
+        }
+        return containerMap
     }
 
     companion object {
 
+        private val CHANNEL = "christian_picker_image"
+        private val PICKS_CHANNEL = "christian_picker_image/picks"
+
+        /* Every pick gets its own request code in this range, clear of IpCons.RC_IMAGE_PICKER */
+        private val PICK_REQUEST_BASE = 0x2300
+        private val PICK_REQUEST_RANGE = 0x100
+
         private val PICK_IMAGES = "pickImages"
-        private val REFRESH_IMAGE = "refreshImage"
+        private val PREFETCH = "prefetch"
+        private val QUERY_MEDIA = "queryMedia"
+        private val QUERY_FOLDERS = "queryFolders"
+        private val OFFSET = "offset"
+        private val LIMIT = "limit"
+        private val FILTER = "filter"
+        private val INCLUDE_VIDEO = "includeVideo"
+        private val BUCKET_ID = "bucketId"
+        private val EXCLUDE_IDS = "excludeIds"
+        private val EXCLUDE_FOLDERS = "excludeFolders"
+        private val INVALID_ARGUMENT = "invalid_argument"
+        private val QUERY_FAILED = "query_failed"
+        private val SUPERSEDED = "superseded"
+        private val PERMISSION_DENIED = "permission_denied"
+        private val NO_ACTIVITY = "no_activity"
+        private val ACTIVITY_DETACHED = "activity_detached"
+        private val ENGINE_DETACHED = "engine_detached"
         private val MAX_IMAGES = "maxImages"
-        private val ANDROID_OPTIONS = "androidOptions"
-
-        private val SELECTED_ASSETS = "selectedAssets"
-        private val ENABLE_CAMERA = "enableCamera"
-        private val REQUEST_CODE_CHOOSE = 1001
-        private val REQUEST_CODE_GRANT_PERMISSIONS = 2001
+        private val THUMBNAIL_SIZE = "thumbnailSize"
+        private val THUMBNAIL_FORMAT = "thumbnailFormat"
+        private val THUMBNAIL_QUALITY = "thumbnailQuality"
+        private val MAX_DIMENSION = "maxDimension"
+        private val OUTPUT_FORMAT = "outputFormat"
+        private val QUALITY = "quality"
 
         /**
-         * Plugin registration.
+         * Registration for apps still on the v1 embedding, calls are handled on the platform thread there
+         * See the class documentation for what that costs
          */
         @JvmStatic
         fun registerWith(registrar: Registrar) {
-            val channel = MethodChannel(registrar.messenger(), "christian_picker_image")
-            val instance = ChristianPickerImagePlugin(registrar.activity(), registrar.context(), channel, registrar.messenger())
-            registrar.addActivityResultListener(instance);
-            channel.setMethodCallHandler(instance)
+            val instance = ChristianPickerImagePlugin()
+            instance.attach(registrar.context(), registrar.messenger(), null)
+            instance.activity = registrar.activity()
+            registrar.addActivityResultListener(instance)
         }
     }
 
@@ -0,0 +1,203 @@
+package com.imagepicker.adapter;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.christian.christian_picker_image.R;
+import com.imagepicker.features.imageloader.ImageType;
+import com.imagepicker.features.imageloader.ThumbnailImageLoader;
+import com.imagepicker.model.Image;
+import com.imagepicker.model.MediaSnapshot;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ImagePickerAdapterTest {
+
+    private Context context;
+    private FrameLayout parent;
+    private ImagePickerAdapter adapter;
+
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        parent = new FrameLayout(context);
+        adapter = new ImagePickerAdapter(context, (path, imageView, imageType) -> {
+        }, new ArrayList<>(), isSelected -> true);
+        adapter.setData(new MediaSnapshot.Builder()
+                .add(5, "/sdcard/a.gif", "DCIM", 1, MediaSnapshot.TYPE_GIF)
+                .add(4, "/sdcard/b.gif", "DCIM", 1, MediaSnapshot.TYPE_GIF)
+                .add(3, "/sdcard/c.mp4", "DCIM", 1, MediaSnapshot.TYPE_VIDEO)
+                .add(2, "/sdcard/d.jpg", "DCIM", 1, MediaSnapshot.TYPE_IMAGE)
+                .build());
+    }
+
+    private ImagePickerAdapter.ImageViewHolder create() {
+        return adapter.onCreateViewHolder(parent, BaseListAdapter.VIEW_TYPE_IMAGE);
+    }
+
+    @Test
+    public void holdersShareTheClickListeners() {
+        ImagePickerAdapter.ImageViewHolder first = create();
+        ImagePickerAdapter.ImageViewHolder second = create();
+        View.OnClickListener listener = shadowOf(first.itemView).getOnClickListener();
+
+        assertNotNull(listener);
+        assertSame(listener, shadowOf(second.itemView).getOnClickListener());
+        assertSame(shadowOf(first.itemView).getOnLongClickListener(),
+                shadowOf(second.itemView).getOnLongClickListener());
+
+        adapter.onBindViewHolder(first, 0);
+        adapter.onBindViewHolder(first, 3);
+        assertSame(listener, shadowOf(first.itemView).getOnClickListener());
+    }
+
+    @Test
+    public void rebindingTheSameTypeKeepsTheLabel() {
+        ImagePickerAdapter.ImageViewHolder holder = create();
+        TextView indicator = holder.itemView.findViewById(R.id.ef_item_file_type_indicator);
+        final int[] textChanges = new int[1];
+        indicator.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                textChanges[0]++;
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
+
+        adapter.onBindViewHolder(holder, 0);
+        assertEquals(1, textChanges[0]);
+        assertEquals(context.getString(R.string.ef_gif), indicator.getText().toString());
+
+        adapter.onBindViewHolder(holder, 1);
+        assertEquals(1, textChanges[0]);
+
+        adapter.onBindViewHolder(holder, 3);
+        assertEquals(1, textChanges[0]);
+        assertEquals(View.GONE, indicator.getVisibility());
+
+        adapter.onBindViewHolder(holder, 2);
+        assertEquals(2, textChanges[0]);
+        assertEquals(context.getString(R.string.ef_video), indicator.getText().toString());
+        assertEquals(View.VISIBLE, indicator.getVisibility());
+    }
+
+    @Test
+    public void rebindingReusesTheSelectedForeground() {
+        adapter = new ImagePickerAdapter(context, (path, imageView, imageType) -> {
+        }, Collections.singletonList(new Image(5, "a.gif", "/sdcard/a.gif")), isSelected -> true);
+        adapter.setData(new MediaSnapshot.Builder()
+                .add(5, "/sdcard/a.gif", "DCIM", 1, MediaSnapshot.TYPE_GIF)
+                .add(4, "/sdcard/b.gif", "DCIM", 1, MediaSnapshot.TYPE_GIF)
+                .build());
+        ImagePickerAdapter.ImageViewHolder holder = create();
+        FrameLayout container = (FrameLayout) holder.itemView;
+
+        adapter.onBindViewHolder(holder, 0);
+        Drawable foreground = container.getForeground();
+        assertNotNull(foreground);
+
+        adapter.onBindViewHolder(holder, 1);
+        assertNull(container.getForeground());
+
+        adapter.onBindViewHolder(holder, 0);
+        assertSame(foreground, container.getForeground());
+    }
+
+    /* Flat cells draw without framework view setters, which allocate in Robolectric's shadows */
+    @Test
+    public void rebindingDoesNotAllocate() {
+        final int[] requests = new int[1];
+        adapter = new ImagePickerAdapter(context, new CountingLoader(requests), new ArrayList<>(), isSelected -> true);
+        adapter.setThumbnailSize(100);
+        adapter.setFlatCells(true);
+        adapter.setData(new MediaSnapshot.Builder()
+                .add(5, "/sdcard/a.gif", "DCIM", 1, MediaSnapshot.TYPE_GIF)
+                .build());
+        ImagePickerAdapter.ImageViewHolder holder =
+                adapter.onCreateViewHolder(parent, BaseListAdapter.VIEW_TYPE_IMAGE_FLAT);
+        adapter.onBindViewHolder(holder, 0);
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1000; i++) {
+            adapter.onBindViewHolder(holder, 0);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertEquals(1001, requests[0]);
+        /* A single object per bind would be 16000 bytes */
+        assertTrue("allocated " + allocated + " bytes", allocated < 1024);
+    }
+
+    private static class CountingLoader implements ThumbnailImageLoader {
+
+        private final int[] requests;
+
+        CountingLoader(int[] requests) {
+            this.requests = requests;
+        }
+
+        @Override
+        public void loadImage(String path, ImageView imageView, ImageType imageType) {
+            requests[0]++;
+        }
+
+        @Override
+        public void loadThumbnail(long id, String path, long dateModified, boolean isVideo, int size,
+                                  ImageView imageView, ImageType imageType) {
+            requests[0]++;
+        }
+
+        @Override
+        public Object preloadThumbnail(Context context, long id, String path, long dateModified, boolean isVideo,
+                                       int size) {
+            return null;
+        }
+
+        @Override
+        public void cancelPreload(Context context, Object request) {
+        }
+
+        @Override
+        public void pauseRequests(Context context) {
+        }
+
+        @Override
+        public void resumeRequests(Context context) {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.imagepicker.features;
+
+import com.imagepicker.model.Image;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ExclusionFilterTest {
+
+    @Test
+    public void nothingExcludedIsNone() {
+        assertSame(ExclusionFilter.NONE, ExclusionFilter.create(null, null, null));
+        assertSame(ExclusionFilter.NONE, ExclusionFilter.create(new long[0], Collections.<File>emptyList(),
+                Collections.<String>emptyList()));
+        assertTrue(ExclusionFilter.NONE.isEmpty());
+        assertFalse(ExclusionFilter.NONE.isExcluded(1, "/sdcard/a.jpg"));
+    }
+
+    @Test
+    public void shortIdListGoesIntoTheSelection() {
+        ExclusionFilter filter = ExclusionFilter.create(new long[]{3, 1, 2}, null, null);
+
+        assertEquals("_id NOT IN (1,2,3)", filter.getSelection());
+        assertFalse(filter.hasRowFilter());
+        assertFalse(filter.isExcludedId(2));
+    }
+
+    @Test
+    public void longIdListIsCheckedPerRow() {
+        long[] ids = new long[5000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i * 7L;
+        }
+        ExclusionFilter filter = ExclusionFilter.create(ids, null, null);
+
+        assertNull(filter.getSelection());
+        assertTrue(filter.hasRowFilter());
+        for (long id : ids) {
+            assertTrue(filter.isExcluded(id, "/sdcard/" + id + ".jpg"));
+        }
+        assertFalse(filter.isExcluded(8, "/sdcard/8.jpg"));
+    }
+
+    @Test
+    public void filesAreMatchedByPath() {
+        ExclusionFilter filter = ExclusionFilter.create(null,
+                Arrays.asList(new File("/sdcard/DCIM/a.jpg"), null), null);
+
+        assertTrue(filter.hasRowFilter());
+        assertTrue(filter.isExcluded(1, "/sdcard/DCIM/a.jpg"));
+        assertFalse(filter.isExcluded(1, "/sdcard/DCIM/b.jpg"));
+    }
+
+    @Test
+    public void foldersExcludeTheirSubfolders() {
+        ExclusionFilter filter = ExclusionFilter.create(null, null, Arrays.asList("/sdcard/WhatsApp/", ""));
+
+        assertTrue(filter.isExcluded(1, "/sdcard/WhatsApp/a.jpg"));
+        assertTrue(filter.isExcluded(2, "/sdcard/WhatsApp/Media/Sent/b.jpg"));
+        assertFalse(filter.isExcluded(3, "/sdcard/WhatsAppBackup/c.jpg"));
+        assertFalse(filter.isExcluded(4, "/sdcard/d.jpg"));
+        assertFalse(filter.isExcluded(5, "e.jpg"));
+    }
+
+    @Test
+    public void keyFollowsTheExclusions() {
+        long key = ExclusionFilter.create(new long[]{1, 2}, null, null).getKey();
+
+        assertEquals(key, ExclusionFilter.create(new long[]{2, 1}, null, null).getKey());
+        assertFalse(key == ExclusionFilter.create(new long[]{1, 3}, null, null).getKey());
+        assertFalse(key == ExclusionFilter.create(new long[]{1, 2}, null,
+                Collections.singletonList("/sdcard")).getKey());
+    }
+
+    @Test
+    public void excludedImagesKeepExplicitIds() {
+        ImagePickerConfig config = new ImagePickerConfig();
+        config.setExcludedIds(new long[]{1});
+        config.setExcludedImages(new ArrayList<>(Collections.singletonList(new Image(2, "b.jpg", "/sdcard/b.jpg"))));
+        ExclusionFilter filter = config.getExclusionFilter();
+
+        assertEquals("_id NOT IN (1,2)", filter.getSelection());
+        assertTrue(filter.isExcluded(3, "/sdcard/b.jpg"));
+
+        config.setExcludedImageFiles(null);
+        assertEquals("_id NOT IN (1)", config.getExclusionFilter().getSelection());
+    }
+}
@@ -0,0 +1,114 @@
+package com.imagepicker.model;
+
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MediaDeltaTest {
+
+    /* Rows are given as id and modification date pairs */
+    private static MediaSnapshot snapshot(long... rows) {
+        MediaSnapshot.Builder builder = new MediaSnapshot.Builder();
+        for (int i = 0; i < rows.length; i += 2) {
+            builder.add(rows[i], "/sdcard/DCIM/" + rows[i] + ".jpg", "DCIM", rows[i + 1]);
+        }
+        return builder.build();
+    }
+
+    private static List<String> dispatch(MediaDelta delta) {
+        final List<String> updates = new ArrayList<>();
+        assertTrue(delta.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+                updates.add("insert " + position + " " + count);
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+                updates.add("remove " + position + " " + count);
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+                updates.add("move " + fromPosition + " " + toPosition);
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+                updates.add("change " + position + " " + count);
+            }
+        }));
+        return updates;
+    }
+
+    @Test
+    public void sameRowsAreEmpty() {
+        MediaDelta delta = MediaDelta.between(snapshot(3, 1, 2, 1, 1, 1), snapshot(3, 1, 2, 1, 1, 1));
+        assertTrue(delta.isEmpty());
+        assertEquals(0, dispatch(delta).size());
+    }
+
+    @Test
+    public void newRowsOnTopAreOneInsert() {
+        MediaDelta delta = MediaDelta.between(snapshot(3, 1, 2, 1), snapshot(5, 1, 4, 1, 3, 1, 2, 1));
+        assertFalse(delta.isEmpty());
+        assertEquals(Arrays.asList("insert 0 2"), dispatch(delta));
+    }
+
+    @Test
+    public void adjacentRemovalsAreMerged() {
+        MediaDelta delta = MediaDelta.between(snapshot(5, 1, 4, 1, 3, 1, 2, 1, 1, 1), snapshot(5, 1, 2, 1, 1, 1));
+        assertEquals(Arrays.asList("remove 1 2"), dispatch(delta));
+    }
+
+    @Test
+    public void modifiedRowsAreChanged() {
+        MediaDelta delta = MediaDelta.between(snapshot(4, 1, 3, 1, 2, 1, 1, 1), snapshot(4, 1, 3, 9, 2, 9, 1, 1));
+        assertEquals(Arrays.asList("change 1 2"), dispatch(delta));
+    }
+
+    @Test
+    public void mixedUpdatesUseTheirPositionAtDispatch() {
+        MediaDelta delta = MediaDelta.between(
+                snapshot(5, 1, 4, 1, 3, 1, 2, 1),
+                snapshot(6, 1, 5, 1, 3, 9, 2, 1, 1, 1));
+        assertEquals(Arrays.asList("insert 0 1", "remove 2 1", "change 2 1", "insert 4 1"), dispatch(delta));
+    }
+
+    @Test
+    public void movedRowFallsBackToRefresh() {
+        MediaDelta delta = MediaDelta.between(snapshot(3, 1, 2, 1, 1, 1), snapshot(1, 1, 3, 1, 2, 1));
+        assertFalse(delta.dispatchUpdatesTo(new ListUpdateCallback() {
+            @Override
+            public void onInserted(int position, int count) {
+            }
+
+            @Override
+            public void onRemoved(int position, int count) {
+            }
+
+            @Override
+            public void onMoved(int fromPosition, int toPosition) {
+            }
+
+            @Override
+            public void onChanged(int position, int count, Object payload) {
+            }
+        }));
+    }
+
+    @Test
+    public void subsetKeepsTheChangedIds() {
+        MediaDelta delta = MediaDelta.between(snapshot(4, 1, 3, 1, 2, 1), snapshot(4, 1, 3, 1, 2, 9));
+        MediaDelta subset = delta.subset(snapshot(2, 1), snapshot(2, 9));
+        assertEquals(Arrays.asList("change 0 1"), dispatch(subset));
+    }
+}
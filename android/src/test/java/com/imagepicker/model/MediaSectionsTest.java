@@ -0,0 +1,59 @@
+package com.imagepicker.model;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+
+import static org.junit.Assert.assertEquals;
+
+public class MediaSectionsTest {
+
+    private static long seconds(int year, int month, int day) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month, day, 12, 0);
+        return calendar.getTimeInMillis() / 1000;
+    }
+
+    private static MediaSnapshot.Builder add(MediaSnapshot.Builder builder, long id, long dateAdded, long dateTaken) {
+        return builder.add(id, "/sdcard/DCIM/" + id + ".jpg", "DCIM", dateAdded, dateAdded, dateTaken,
+                MediaSnapshot.TYPE_IMAGE);
+    }
+
+    @Test
+    public void sectionsFollowDateAdded() {
+        MediaSnapshot.Builder builder = new MediaSnapshot.Builder();
+        add(builder, 5, seconds(2020, Calendar.MARCH, 20), seconds(2020, Calendar.MARCH, 20) * 1000);
+        add(builder, 4, seconds(2020, Calendar.MARCH, 2), seconds(2020, Calendar.MARCH, 2) * 1000);
+        add(builder, 3, seconds(2020, Calendar.FEBRUARY, 10), seconds(2020, Calendar.FEBRUARY, 10) * 1000);
+        MediaSections sections = builder.build().getSections();
+
+        assertEquals(2, sections.size());
+        assertEquals(0, sections.getPositionForSection(0));
+        assertEquals(2, sections.getPositionForSection(1));
+        assertEquals(0, sections.getSectionForPosition(1));
+        assertEquals(1, sections.getSectionForPosition(2));
+    }
+
+    /* An old photo copied onto the device today is added now but taken years ago */
+    @Test
+    public void oldCaptureTimeDoesNotRelabelLaterRows() {
+        MediaSnapshot.Builder builder = new MediaSnapshot.Builder();
+        add(builder, 6, seconds(2020, Calendar.MARCH, 20), seconds(2020, Calendar.MARCH, 20) * 1000);
+        add(builder, 5, seconds(2020, Calendar.MARCH, 15), seconds(2012, Calendar.JULY, 1) * 1000);
+        add(builder, 4, seconds(2020, Calendar.MARCH, 2), seconds(2020, Calendar.MARCH, 2) * 1000);
+        add(builder, 3, seconds(2020, Calendar.FEBRUARY, 10), seconds(2020, Calendar.FEBRUARY, 10) * 1000);
+        MediaSections sections = builder.build().getSections();
+
+        assertEquals(2, sections.size());
+        assertEquals(0, sections.getSectionForPosition(1));
+        assertEquals(0, sections.getSectionForPosition(2));
+        assertEquals(1, sections.getSectionForPosition(3));
+        assertEquals(sections.getLabel(0), sections.getLabel(sections.getSectionForPosition(2)));
+    }
+
+    @Test
+    public void emptySnapshotHasNoSections() {
+        assertEquals(0, MediaSnapshot.EMPTY.getSections().size());
+    }
+}
@@ -0,0 +1,94 @@
+package com.imagepicker.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class MediaSnapshotCodecTest {
+
+    private static final long KEY = 42;
+
+    private static MediaSnapshot snapshot() {
+        return new MediaSnapshot.Builder()
+                .add(9, "/sdcard/DCIM/Camera/IMG_9.jpg", "Camera", 100, 200, 300000, MediaSnapshot.TYPE_IMAGE)
+                .add(8, "/sdcard/Movies/clip.mp4", "Movies", 101, 199, 299000, MediaSnapshot.TYPE_VIDEO)
+                .add(7, "/sdcard/Download/ünïcode.gif", null, 102, 198, 298000, MediaSnapshot.TYPE_GIF)
+                .setSyncPoint(new MediaSnapshot.SyncPoint(200, 102, 17))
+                .build();
+    }
+
+    private static void assertRejected(ByteBuffer buffer, long key) {
+        try {
+            MediaSnapshotCodec.decode(buffer, key);
+            fail("Decoded a rejected media index");
+        } catch (IOException expected) {
+            // rejected
+        }
+    }
+
+    @Test
+    public void roundTripKeepsEveryColumn() throws IOException {
+        MediaSnapshot source = snapshot();
+        MediaSnapshot decoded = MediaSnapshotCodec.decode(MediaSnapshotCodec.encode(source, KEY), KEY);
+
+        assertEquals(source.size(), decoded.size());
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(source.getId(i), decoded.getId(i));
+            assertEquals(source.getPath(i), decoded.getPath(i));
+            assertEquals(source.getFolderName(i), decoded.getFolderName(i));
+            assertEquals(source.getDateModified(i), decoded.getDateModified(i));
+            assertEquals(source.getDateAdded(i), decoded.getDateAdded(i));
+            assertEquals(source.getDateTaken(i), decoded.getDateTaken(i));
+            assertEquals(source.getType(i), decoded.getType(i));
+        }
+        assertEquals(200, decoded.getSyncPoint().getDateAdded());
+        assertEquals(102, decoded.getSyncPoint().getDateModified());
+        assertEquals(17, decoded.getSyncPoint().getGeneration());
+        assertEquals(1, decoded.indexOfId(8));
+    }
+
+    @Test
+    public void emptySnapshotRoundTrips() throws IOException {
+        ByteBuffer buffer = MediaSnapshotCodec.encode(MediaSnapshot.EMPTY, KEY);
+        assertEquals(0, MediaSnapshotCodec.decode(buffer, KEY).size());
+    }
+
+    @Test
+    public void otherKeyIsRejected() {
+        assertRejected(MediaSnapshotCodec.encode(snapshot(), KEY), KEY + 1);
+    }
+
+    @Test
+    public void otherVersionIsRejected() {
+        ByteBuffer buffer = MediaSnapshotCodec.encode(snapshot(), KEY);
+        buffer.putInt(4, MediaSnapshotCodec.VERSION - 1);
+
+        /* Valid checksum, so only the version check can reject it */
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.limit() - 4);
+        buffer.putInt(buffer.limit() - 4, (int) crc.getValue());
+        assertRejected(buffer, KEY);
+    }
+
+    @Test
+    public void flippedByteFailsTheChecksum() {
+        ByteBuffer buffer = MediaSnapshotCodec.encode(snapshot(), KEY);
+        int position = buffer.limit() / 2;
+        buffer.put(position, (byte) ~buffer.get(position));
+        assertRejected(buffer, KEY);
+    }
+
+    @Test
+    public void truncatedBufferIsRejected() {
+        ByteBuffer buffer = MediaSnapshotCodec.encode(snapshot(), KEY);
+        buffer.limit(buffer.limit() - 9);
+        assertRejected(buffer, KEY);
+        buffer.limit(2);
+        assertRejected(buffer, KEY);
+    }
+}
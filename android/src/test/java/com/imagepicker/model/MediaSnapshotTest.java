@@ -0,0 +1,168 @@
+package com.imagepicker.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MediaSnapshotTest {
+
+    private static MediaSnapshot snapshot(long... ids) {
+        MediaSnapshot.Builder builder = new MediaSnapshot.Builder(0, 0);
+        for (long id : ids) {
+            builder.add(id, "/sdcard/DCIM/" + id + ".jpg", id % 2 == 0 ? "Even" : "Odd", id);
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void indexOfIdFindsEveryRow() {
+        long[] ids = new long[1000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (i + 1) * 1024L;
+        }
+        MediaSnapshot snapshot = snapshot(ids);
+
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(i, snapshot.indexOfId(ids[i]));
+        }
+        assertEquals(-1, snapshot.indexOfId(1));
+        assertEquals(-1, snapshot.indexOfId(0));
+        assertFalse(snapshot.containsId(-1024));
+    }
+
+    @Test
+    public void duplicateIdKeepsFirstPosition() {
+        MediaSnapshot snapshot = snapshot(7, 3, 7);
+        assertEquals(0, snapshot.indexOfId(7));
+        assertEquals(1, snapshot.indexOfId(3));
+    }
+
+    @Test
+    public void emptySnapshotHasNoIds() {
+        assertEquals(-1, MediaSnapshot.EMPTY.indexOfId(1));
+        assertTrue(MediaSnapshot.EMPTY.isEmpty());
+    }
+
+    @Test
+    public void columnsSurviveGrowing() {
+        MediaSnapshot.Builder builder = new MediaSnapshot.Builder(0, 0);
+        for (int i = 0; i < 100; i++) {
+            builder.add(i + 1, "/storage/emulated/0/Pictures/Screenshots/image_" + i + ".png", "Screenshots",
+                    1000 + i, 2000 + i, 3000L + i, MediaSnapshot.TYPE_IMAGE);
+        }
+        MediaSnapshot snapshot = builder.build();
+
+        assertEquals(100, snapshot.size());
+        assertEquals(1, snapshot.getFolderCount());
+        assertEquals(50, snapshot.getId(49));
+        assertEquals(1049, snapshot.getDateModified(49));
+        assertEquals(2049, snapshot.getDateAdded(49));
+        assertEquals(3049, snapshot.getDateTaken(49));
+        assertEquals("/storage/emulated/0/Pictures/Screenshots/image_49.png", snapshot.getPath(49));
+        assertEquals("image_49.png", snapshot.getName(49));
+        assertEquals("Screenshots", snapshot.getFolderName(49));
+    }
+
+    @Test
+    public void addFromCopiesEveryColumn() {
+        MediaSnapshot source = new MediaSnapshot.Builder()
+                .add(5, "/sdcard/a.mp4", "Movies", 10, 20, 30, MediaSnapshot.TYPE_VIDEO)
+                .add(6, "/sdcard/b.gif", null, 11, 21, 31, MediaSnapshot.TYPE_GIF)
+                .build();
+        MediaSnapshot copy = new MediaSnapshot.Builder()
+                .addFrom(source, 1)
+                .addFrom(source, 0)
+                .build();
+
+        assertEquals(6, copy.getId(0));
+        assertEquals("/sdcard/b.gif", copy.getPath(0));
+        assertNull(copy.getFolderName(0));
+        assertEquals(MediaSnapshot.TYPE_GIF, copy.getType(0));
+        assertEquals(5, copy.getId(1));
+        assertEquals("Movies", copy.getFolderName(1));
+        assertEquals(20, copy.getDateAdded(1));
+        assertEquals(30, copy.getDateTaken(1));
+        assertEquals(MediaSnapshot.TYPE_VIDEO, copy.getType(1));
+        assertEquals(0, copy.indexOfId(6));
+    }
+
+    @Test
+    public void foldersIndexTheirOwnRows() {
+        List<Folder> folders = snapshot(1, 2, 3, 4, 5).toFolders();
+
+        assertEquals(2, folders.size());
+        assertEquals("Odd", folders.get(0).getFolderName());
+        assertEquals("Even", folders.get(1).getFolderName());
+        MediaSnapshot odd = folders.get(0).getMedia();
+        assertEquals(3, odd.size());
+        assertEquals(5, odd.getId(2));
+        assertEquals(1, odd.indexOfId(3));
+        assertEquals(-1, odd.indexOfId(2));
+    }
+
+    @Test
+    public void sameRowComparesContentNotId() {
+        MediaSnapshot previous = new MediaSnapshot.Builder()
+                .add(1, "/sdcard/DCIM/a.jpg", "DCIM", 10, 20, 30, MediaSnapshot.TYPE_IMAGE)
+                .build();
+        MediaSnapshot current = new MediaSnapshot.Builder()
+                .add(9, "/sdcard/x.jpg", null, 1, MediaSnapshot.TYPE_IMAGE)
+                .add(1, "/sdcard/DCIM/a.jpg", "DCIM", 10, 20, 30, MediaSnapshot.TYPE_IMAGE)
+                .add(1, "/sdcard/DCIM/b.jpg", "DCIM", 10, 20, 30, MediaSnapshot.TYPE_IMAGE)
+                .add(1, "/sdcard/DCIM/a.jpg", "DCIM", 11, 20, 30, MediaSnapshot.TYPE_IMAGE)
+                .add(1, "/sdcard/DCIM/a.jpg", "Camera", 10, 20, 30, MediaSnapshot.TYPE_IMAGE)
+                .add(1, "/sdcard/DCIM/a.jpg", "DCIM", 10, 20, 30, MediaSnapshot.TYPE_GIF)
+                .build();
+
+        assertTrue(current.isSameRow(1, previous, 0));
+        assertFalse(current.isSameRow(2, previous, 0));
+        assertFalse(current.isSameRow(3, previous, 0));
+        assertFalse(current.isSameRow(4, previous, 0));
+        assertFalse(current.isSameRow(5, previous, 0));
+        assertFalse(current.isSameRow(0, previous, 0));
+    }
+
+    @Test
+    public void pathIsFoundIgnoringCaseFromPosition() {
+        MediaSnapshot snapshot = new MediaSnapshot.Builder()
+                .add(1, "/sdcard/DCIM/a.jpg", "DCIM", 1)
+                .add(2, "/sdcard/DCIM/ab.jpg", "DCIM", 1)
+                .add(3, "/sdcard/DCIM/A.JPG", "DCIM", 1)
+                .build();
+
+        assertEquals(0, snapshot.indexOfPath("/sdcard/DCIM/A.jpg", 0));
+        assertEquals(2, snapshot.indexOfPath("/sdcard/DCIM/a.jpg", 1));
+        assertEquals(-1, snapshot.indexOfPath("/sdcard/DCIM/a.jpg", 3));
+        assertEquals(-1, snapshot.indexOfPath("/sdcard/DCIM/b.jpg", 0));
+    }
+
+    @Test
+    public void rowsWithoutIdGetDistinctNegativeStableIds() {
+        MediaSnapshot snapshot = MediaSnapshot.fromImages(Arrays.asList(
+                new Image(7, "a.jpg", "/sdcard/a.jpg"),
+                new Image(0, "b.jpg", "/sdcard/b.jpg"),
+                new Image(0, "c.jpg", "/sdcard/c.jpg")));
+
+        assertEquals(7, snapshot.getStableId(0));
+        assertTrue(snapshot.getStableId(1) < 0);
+        assertTrue(snapshot.getStableId(2) < 0);
+        assertNotEquals(snapshot.getStableId(1), snapshot.getStableId(2));
+        assertEquals(snapshot.getStableId(1), MediaSnapshot.fromImages(Arrays.asList(
+                new Image(0, "b.jpg", "/sdcard/b.jpg"))).getStableId(0));
+    }
+
+    @Test
+    public void typeIsResolvedFromMimeTypeThenPath() {
+        assertEquals(MediaSnapshot.TYPE_VIDEO, MediaSnapshot.resolveType("video/mp4", "/a.jpg"));
+        assertEquals(MediaSnapshot.TYPE_GIF, MediaSnapshot.resolveType("image/gif", "/a"));
+        assertEquals(MediaSnapshot.TYPE_IMAGE, MediaSnapshot.resolveType("image/jpeg", "/a.gif"));
+        assertEquals(MediaSnapshot.TYPE_GIF, MediaSnapshot.resolveType(null, "/a.GIF"));
+    }
+}
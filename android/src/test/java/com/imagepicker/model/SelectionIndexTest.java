@@ -0,0 +1,114 @@
+package com.imagepicker.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SelectionIndexTest {
+
+    private static Image image(long id) {
+        return new Image(id, id + ".jpg", "/sdcard/DCIM/" + id + ".jpg");
+    }
+
+    @Test
+    public void keepsSelectionOrder() {
+        SelectionIndex selection = new SelectionIndex();
+        Image third = image(3);
+        assertTrue(selection.add(third));
+        assertTrue(selection.add(image(1)));
+        assertTrue(selection.add(image(2)));
+        assertFalse(selection.add(image(3)));
+
+        List<Image> images = selection.toList();
+        assertEquals(3, images.size());
+        assertSame(third, images.get(0));
+        assertEquals(1, images.get(1).getId());
+        assertEquals(2, images.get(2).getId());
+    }
+
+    @Test
+    public void imagesWithoutIdAreFoundByPath() {
+        SelectionIndex selection = new SelectionIndex();
+        selection.add(new Image(0, "a.jpg", "/sdcard/a.jpg"));
+
+        assertTrue(selection.hasPathsOnly());
+        assertTrue(selection.contains(0, "/sdcard/a.jpg"));
+        assertTrue(selection.contains(7, "/sdcard/a.jpg"));
+        assertFalse(selection.containsId(7));
+
+        assertEquals("/sdcard/a.jpg", selection.remove(7, "/sdcard/a.jpg").getPath());
+        assertFalse(selection.hasPathsOnly());
+        assertTrue(selection.isEmpty());
+    }
+
+    @Test
+    public void pathsAreMatchedIgnoringCaseLikeImage() {
+        SelectionIndex selection = new SelectionIndex();
+        Image image = new Image(0, "a.jpg", "/sdcard/DCIM/a.jpg");
+        assertTrue(selection.add(image));
+        assertFalse(selection.add(new Image(0, "A.JPG", "/SDCARD/dcim/A.JPG")));
+
+        assertTrue(selection.contains(0, "/sdcard/dcim/A.jpg"));
+        assertSame(image, selection.remove(0, "/SDCARD/DCIM/A.JPG"));
+        assertTrue(selection.isEmpty());
+        assertFalse(selection.hasPathsOnly());
+    }
+
+    @Test
+    public void removingUnselectedReturnsNull() {
+        SelectionIndex selection = new SelectionIndex();
+        selection.add(image(1));
+        assertNull(selection.remove(2, "/sdcard/DCIM/2.jpg"));
+        assertEquals(1, selection.size());
+    }
+
+    /* Removal shifts colliding entries back, every id left must still be reachable */
+    @Test
+    public void removalKeepsOtherIdsReachable() {
+        SelectionIndex selection = new SelectionIndex();
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(1);
+
+        for (int round = 0; round < 20000; round++) {
+            long id = 1 + random.nextInt(512);
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(id), selection.add(image(id)));
+            } else {
+                assertEquals(expected.remove(id), selection.remove(id, "/sdcard/DCIM/" + id + ".jpg") != null);
+            }
+        }
+
+        assertEquals(expected.size(), selection.size());
+        for (long id = 1; id <= 512; id++) {
+            assertEquals(expected.contains(id), selection.containsId(id));
+        }
+    }
+
+    @Test
+    public void clearEmptiesEveryLookup() {
+        SelectionIndex selection = new SelectionIndex();
+        List<Image> images = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            images.add(image(id));
+        }
+        images.add(new Image(0, "a.jpg", "/sdcard/a.jpg"));
+        selection.addAll(images);
+        assertEquals(101, selection.size());
+
+        selection.clear();
+        assertTrue(selection.isEmpty());
+        assertFalse(selection.containsId(50));
+        assertFalse(selection.contains(0, "/sdcard/a.jpg"));
+        assertTrue(selection.add(image(50)));
+    }
+}
@@ -1,27 +1,230 @@
 import 'dart:async';
 import 'dart:io';
+import 'dart:typed_data';
 
 import 'package:flutter/material.dart';
 import 'package:flutter/services.dart';
 
+/// Encoding of the thumbnails returned by
+/// [ChristianPickerImage.pickImagesWithThumbnails].
+enum ThumbnailFormat { jpeg, webp }
+
+/// Encoding of the resized copies returned when a pick method is given a
+/// maxDimension.
+enum OutputFormat { jpeg, png, webp }
+
+/// A picked file with a scaled down copy ready to be shown, e.g. in a
+/// preview strip, without decoding the full size file.
+class PickedImage {
+  PickedImage(
+    this.file,
+    this.thumbnail, {
+    this.index,
+    this.id,
+    this.name,
+    this.size,
+    this.lastModified,
+  });
+
+  PickedImage._fromMap(Map<dynamic, dynamic> map)
+      : this(
+          File(map["path"]),
+          map["thumbnail"],
+          index: map["index"],
+          id: map["id"],
+          name: map["name"],
+          size: map["size"],
+          lastModified: map["lastModified"] == null
+              ? null
+              : DateTime.fromMillisecondsSinceEpoch(map["lastModified"]),
+        );
+
+  final File file;
+
+  /// Encoded thumbnail, null when the file couldn't be decoded or none was
+  /// requested.
+  final Uint8List thumbnail;
+
+  /// Position in the selection, items of [ChristianPickerImage.pickImagesStream]
+  /// can arrive out of order.
+  final int index;
+
+  /// MediaStore id, 0 when the file isn't indexed.
+  final int id;
+
+  final String name;
+
+  /// File size in bytes.
+  final int size;
+
+  final DateTime lastModified;
+}
+
+/// Values of [MediaPage.types].
+class MediaType {
+  static const int image = 0;
+  static const int gif = 1;
+  static const int video = 2;
+}
+
+/// Narrows [ChristianPickerImage.queryMedia] and
+/// [ChristianPickerImage.queryFolders]. [bucketId] is ignored by
+/// queryFolders.
+class MediaFilter {
+  MediaFilter({
+    this.includeVideo = false,
+    this.bucketId,
+    this.excludeIds,
+    this.excludeFolders,
+  });
+
+  final bool includeVideo;
+
+  /// Folder to read, see [MediaFolder.bucketId]. Every folder when null.
+  final int bucketId;
+
+  /// MediaStore ids left out of the results.
+  final List<int> excludeIds;
+
+  /// Folder paths left out of the results, with their subfolders.
+  final List<String> excludeFolders;
+
+  Map<String, dynamic> _toMap() {
+    return <String, dynamic>{
+      "includeVideo": includeVideo,
+      "bucketId": bucketId,
+      "excludeIds": excludeIds,
+      "excludeFolders": excludeFolders,
+    };
+  }
+}
+
+/// One window of the device media, newest first. Every list holds one
+/// entry per item, so a grid can index them directly without a wrapper
+/// object per item.
+class MediaPage {
+  MediaPage._fromMap(Map<dynamic, dynamic> map)
+      : ids = map["ids"],
+        paths = List<String>.from(map["paths"]),
+        types = map["types"],
+        datesTaken = map["datesTaken"],
+        datesModified = map["datesModified"],
+        nextOffset = map["nextOffset"];
+
+  /// MediaStore ids.
+  final Int64List ids;
+
+  final List<String> paths;
+
+  /// One of the [MediaType] values.
+  final Uint8List types;
+
+  /// In milliseconds since epoch, the date added when there is no EXIF date.
+  final Int64List datesTaken;
+
+  /// In seconds since epoch.
+  final Int64List datesModified;
+
+  /// Offset of the following page, null after the last page. Can be more
+  /// than the offset plus [length] when some items were excluded.
+  final int nextOffset;
+
+  int get length => ids.length;
+}
+
+/// A device folder with its item count and newest item.
+class MediaFolder {
+  MediaFolder._(
+      this.bucketId, this.name, this.count, this.coverId, this.coverPath);
+
+  /// Pass it as [MediaFilter.bucketId] to page through this folder.
+  final int bucketId;
+
+  final String name;
+
+  final int count;
+
+  /// MediaStore id of the newest item.
+  final int coverId;
+
+  final String coverPath;
+}
+
 class ChristianPickerImage {
   static const MethodChannel _channel =
       const MethodChannel('christian_picker_image');
 
+  static const EventChannel _picks =
+      const EventChannel('christian_picker_image/picks');
+
   static Future<String> get platformVersion async {
     final String version = await _channel.invokeMethod('getPlatformVersion');
     return version;
   }
 
+  /// Starts loading the device images in the background, so a following
+  /// [pickImages] opens with the grid already filled.
+  static Future<void> prefetch() async {
+    await _channel.invokeMethod('prefetch');
+  }
+
+  /// Reads [limit] items of the device media starting at [offset], newest
+  /// first, without opening the picker. Start at 0 and continue with
+  /// [MediaPage.nextOffset] until it's null.
+  static Future<MediaPage> queryMedia({
+    int offset = 0,
+    @required int limit,
+    MediaFilter filter,
+  }) async {
+    final Map<dynamic, dynamic> page =
+        await _channel.invokeMethod('queryMedia', <String, dynamic>{
+      "offset": offset,
+      "limit": limit,
+      "filter": filter?._toMap(),
+    });
+    return MediaPage._fromMap(page);
+  }
+
+  /// Lists the device folders, folders holding the newest items first.
+  ///
+  /// Fails with a `superseded` [PlatformException] when called again with
+  /// another [filter] before it completed.
+  static Future<List<MediaFolder>> queryFolders({MediaFilter filter}) async {
+    final Map<dynamic, dynamic> columns =
+        await _channel.invokeMethod('queryFolders', <String, dynamic>{
+      "filter": filter?._toMap(),
+    });
+    final Int64List bucketIds = columns["bucketIds"];
+    final List<dynamic> names = columns["names"];
+    final Int32List counts = columns["counts"];
+    final Int64List coverIds = columns["coverIds"];
+    final List<dynamic> coverPaths = columns["coverPaths"];
+    return List<MediaFolder>.generate(bucketIds.length, (i) {
+      return MediaFolder._(
+          bucketIds[i], names[i], counts[i], coverIds[i], coverPaths[i]);
+    });
+  }
+
+  /// Opens the picker and returns the picked files. With [maxDimension]
+  /// above 0, images larger than it on their longest side, rotated by EXIF
+  /// or in another format than [outputFormat] are replaced by upright,
+  /// downscaled copies in the app cache dir, encoded with [quality] from 0
+  /// to 100. Videos and GIFs are returned as they are.
   static Future<List<File>> pickImages({
     @required int maxImages,
     enableGestures = true,
+    int maxDimension = 0,
+    OutputFormat outputFormat = OutputFormat.jpeg,
+    int quality = 90,
   }) async {
     
     final List<dynamic> images = await _channel.invokeMethod('pickImages',
     <String, dynamic>{
       "maxImages": maxImages,
-      "enableGestures": enableGestures
+      "enableGestures": enableGestures,
+      "maxDimension": maxDimension,
+      "outputFormat": _outputFormatName(outputFormat),
+      "quality": quality,
     });
 
     return images.map((f) {
@@ -29,4 +232,75 @@ class ChristianPickerImage {
     }).toList();
   }
 
+  /// Same as [pickImages], with every file's thumbnail encoded on the
+  /// platform side. The longest side of a thumbnail is [thumbnailSize]
+  /// pixels, [thumbnailQuality] goes from 0 to 100.
+  static Future<List<PickedImage>> pickImagesWithThumbnails({
+    @required int maxImages,
+    enableGestures = true,
+    int thumbnailSize = 256,
+    int thumbnailQuality = 80,
+    ThumbnailFormat thumbnailFormat = ThumbnailFormat.jpeg,
+    int maxDimension = 0,
+    OutputFormat outputFormat = OutputFormat.jpeg,
+    int quality = 90,
+  }) async {
+    final List<dynamic> images = await _channel.invokeMethod('pickImages',
+    <String, dynamic>{
+      "maxImages": maxImages,
+      "enableGestures": enableGestures,
+      "maxDimension": maxDimension,
+      "outputFormat": _outputFormatName(outputFormat),
+      "quality": quality,
+      "thumbnailSize": thumbnailSize,
+      "thumbnailQuality": thumbnailQuality,
+      "thumbnailFormat":
+          thumbnailFormat == ThumbnailFormat.webp ? "webp" : "jpeg",
+    });
+
+    return images.map((f) {
+      return PickedImage._fromMap(f);
+    }).toList();
+  }
+
+  /// Opens the picker and emits every picked file as soon as it's ready, so
+  /// e.g. uploads can start while later thumbnails are still being encoded.
+  /// Thumbnails are only encoded when [thumbnailSize] is above 0. The stream
+  /// closes once every file was emitted, or right away when the picker is
+  /// cancelled.
+  static Stream<PickedImage> pickImagesStream({
+    @required int maxImages,
+    enableGestures = true,
+    int thumbnailSize = 0,
+    int thumbnailQuality = 80,
+    ThumbnailFormat thumbnailFormat = ThumbnailFormat.jpeg,
+    int maxDimension = 0,
+    OutputFormat outputFormat = OutputFormat.jpeg,
+    int quality = 90,
+  }) {
+    return _picks.receiveBroadcastStream(<String, dynamic>{
+      "maxImages": maxImages,
+      "enableGestures": enableGestures,
+      "maxDimension": maxDimension,
+      "outputFormat": _outputFormatName(outputFormat),
+      "quality": quality,
+      "thumbnailSize": thumbnailSize,
+      "thumbnailQuality": thumbnailQuality,
+      "thumbnailFormat":
+          thumbnailFormat == ThumbnailFormat.webp ? "webp" : "jpeg",
+    }).map((f) {
+      return PickedImage._fromMap(f);
+    });
+  }
+
+  static String _outputFormatName(OutputFormat format) {
+    switch (format) {
+      case OutputFormat.png:
+        return "png";
+      case OutputFormat.webp:
+        return "webp";
+      default:
+        return "jpeg";
+    }
+  }
 }
@@ -1,12 +1,46 @@
+import 'dart:typed_data';
+
 import 'package:flutter/services.dart';
 import 'package:flutter_test/flutter_test.dart';
 import 'package:christian_picker_image/christian_picker_image.dart';
 
 void main() {
+  TestWidgetsFlutterBinding.ensureInitialized();
+
   const MethodChannel channel = MethodChannel('christian_picker_image');
+  final List<MethodCall> log = <MethodCall>[];
 
   setUp(() {
+    log.clear();
     channel.setMockMethodCallHandler((MethodCall methodCall) async {
+      log.add(methodCall);
+      if (methodCall.method == 'pickImages') {
+        return <dynamic>[
+          <String, dynamic>{
+            'path': '/sdcard/DCIM/a.jpg',
+            'thumbnail': Uint8List.fromList(<int>[1, 2, 3]),
+          },
+        ];
+      }
+      if (methodCall.method == 'queryMedia') {
+        return <String, dynamic>{
+          'ids': Int64List.fromList(<int>[7, 5]),
+          'paths': <String>['/sdcard/DCIM/b.mp4', '/sdcard/DCIM/a.jpg'],
+          'types': Uint8List.fromList(<int>[MediaType.video, MediaType.image]),
+          'datesTaken': Int64List.fromList(<int>[2000, 1000]),
+          'datesModified': Int64List.fromList(<int>[2, 1]),
+          'nextOffset': null,
+        };
+      }
+      if (methodCall.method == 'queryFolders') {
+        return <String, dynamic>{
+          'bucketIds': Int64List.fromList(<int>[11]),
+          'names': <String>['Camera'],
+          'counts': Int32List.fromList(<int>[2]),
+          'coverIds': Int64List.fromList(<int>[7]),
+          'coverPaths': <String>['/sdcard/DCIM/b.mp4'],
+        };
+      }
       return '42';
     });
 
@@ -20,4 +54,87 @@ void main() {
     expect(await ChristianPickerImage.platformVersion, '42');
   });
 
+  test('prefetch', () async {
+    await ChristianPickerImage.prefetch();
+    expect(log.single.method, 'prefetch');
+  });
+
+  test('pickImages with resize', () async {
+    final files = await ChristianPickerImage.pickImages(
+      maxImages: 3,
+      maxDimension: 2048,
+      outputFormat: OutputFormat.webp,
+      quality: 85,
+    );
+    expect(log.single.arguments['maxDimension'], 2048);
+    expect(log.single.arguments['outputFormat'], 'webp');
+    expect(log.single.arguments['quality'], 85);
+    expect(files.single.path, '/sdcard/DCIM/a.jpg');
+  });
+
+  test('pickImagesWithThumbnails', () async {
+    final images = await ChristianPickerImage.pickImagesWithThumbnails(
+      maxImages: 3,
+      thumbnailSize: 128,
+      thumbnailFormat: ThumbnailFormat.webp,
+    );
+    expect(log.single.arguments['thumbnailSize'], 128);
+    expect(log.single.arguments['thumbnailFormat'], 'webp');
+    expect(images.single.file.path, '/sdcard/DCIM/a.jpg');
+    expect(images.single.thumbnail, <int>[1, 2, 3]);
+  });
+
+  test('queryMedia', () async {
+    final page = await ChristianPickerImage.queryMedia(
+      limit: 100,
+      filter: MediaFilter(includeVideo: true, bucketId: 11),
+    );
+    expect(log.single.arguments['offset'], 0);
+    expect(log.single.arguments['limit'], 100);
+    expect(log.single.arguments['filter']['bucketId'], 11);
+    expect(page.length, 2);
+    expect(page.paths[1], '/sdcard/DCIM/a.jpg');
+    expect(page.types[0], MediaType.video);
+    expect(page.nextOffset, isNull);
+  });
+
+  test('queryFolders', () async {
+    final folders = await ChristianPickerImage.queryFolders();
+    expect(folders.single.bucketId, 11);
+    expect(folders.single.name, 'Camera');
+    expect(folders.single.count, 2);
+    expect(folders.single.coverPath, '/sdcard/DCIM/b.mp4');
+  });
+
+  test('pickImagesStream', () async {
+    const String name = 'christian_picker_image/picks';
+    const MethodChannel picks = MethodChannel(name);
+    final messenger = ServicesBinding.instance.defaultBinaryMessenger;
+    picks.setMockMethodCallHandler((MethodCall methodCall) async {
+      log.add(methodCall);
+      if (methodCall.method == 'listen') {
+        messenger.handlePlatformMessage(
+            name,
+            const StandardMethodCodec().encodeSuccessEnvelope(<String, dynamic>{
+              'index': 0,
+              'path': '/sdcard/DCIM/a.jpg',
+              'size': 1024,
+            }),
+            (ByteData reply) {});
+        messenger.handlePlatformMessage(name, null, (ByteData reply) {});
+      }
+      return null;
+    });
+
+    final images =
+        await ChristianPickerImage.pickImagesStream(maxImages: 2).toList();
+    expect(log.first.arguments['maxImages'], 2);
+    expect(images.single.index, 0);
+    expect(images.single.file.path, '/sdcard/DCIM/a.jpg');
+    expect(images.single.size, 1024);
+    expect(images.single.thumbnail, isNull);
+
+    picks.setMockMethodCallHandler(null);
+  });
+
 }